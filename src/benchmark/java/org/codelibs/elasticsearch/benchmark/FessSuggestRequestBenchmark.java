@@ -0,0 +1,140 @@
+package org.codelibs.elasticsearch.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+import org.codelibs.elasticsearch.runner.net.Curl;
+import org.codelibs.elasticsearch.runner.net.CurlRequest;
+import org.codelibs.elasticsearch.runner.net.CurlResponse;
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.elasticsearch.node.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the REST request paths of the plugin on an embedded node.
+ * Run with: mvn verify -Pbenchmark -DskipTests
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FessSuggestRequestBenchmark {
+    private static final String INDEX = "fess";
+
+    private static final int CORPUS_SIZE = 1000;
+
+    private static final int BULK_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class Cluster {
+        protected ElasticsearchClusterRunner runner;
+
+        protected Node node;
+
+        protected QueryCorpus corpus;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            runner = FessSuggestTestCluster.start("FessSuggestRequestBenchmark", settings());
+            node = runner.masterNode();
+
+            corpus = new QueryCorpus(CORPUS_SIZE);
+            execute(Curl.post(node, INDEX + "/_fsuggest/create"));
+            final StringBuilder buf = new StringBuilder();
+            for (int i = 0; i < corpus.size(); i++) {
+                buf.append("{\"keyword\":\"").append(corpus.keyword(i)).append("\",\"fields\":[\"content\"],\"freq\":")
+                    .append(1 + i % 10).append("}\n");
+            }
+            execute(Curl.post(node, INDEX + "/_fsuggest/update/_bulk").body(buf.toString()));
+            runner.refresh();
+        }
+
+        protected ElasticsearchClusterRunner.Builder settings() {
+            return (number, settingsBuilder) -> settingsBuilder.put(FessSuggestService.SETTINGS_CACHE_ENABLED, true);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            FessSuggestTestCluster.stop(runner);
+        }
+    }
+
+    /**
+     * A node without the response cache and request coalescing, so every suggest request searches the index.
+     */
+    @State(Scope.Benchmark)
+    public static class UncachedCluster extends Cluster {
+        @Override
+        protected ElasticsearchClusterRunner.Builder settings() {
+            return (number, settingsBuilder) -> {
+                settingsBuilder.put(FessSuggestService.SETTINGS_CACHE_ENABLED, false);
+                settingsBuilder.put(FessSuggestService.SETTINGS_COALESCE_ENABLED, false);
+            };
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        protected int position;
+
+        protected int next() {
+            return position++;
+        }
+    }
+
+    @Benchmark
+    public int suggest(final Cluster cluster, final Cursor cursor) throws IOException {
+        return execute(Curl.get(cluster.node, INDEX + "/_fsuggest").param("q", cluster.corpus.query(cursor.next())));
+    }
+
+    @Benchmark
+    public int suggestUncached(final UncachedCluster cluster, final Cursor cursor) throws IOException {
+        return suggest(cluster, cursor);
+    }
+
+    @Benchmark
+    public int popularWords(final Cluster cluster) throws IOException {
+        return execute(Curl.get(cluster.node, INDEX + "/_fsuggest/pwords").param("query_freq", "0"));
+    }
+
+    @Benchmark
+    public int updateSearchWord(final Cluster cluster, final Cursor cursor) throws IOException {
+        return execute(Curl.post(cluster.node, INDEX + "/_fsuggest/update/searchword")
+            .body("{\"keyword\":\"" + cluster.corpus.keyword(cursor.next()) + "\"}"));
+    }
+
+    @Benchmark
+    public int bulkUpdate(final Cluster cluster, final Cursor cursor) throws IOException {
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < BULK_SIZE; i++) {
+            buf.append("{\"keyword\":\"").append(cluster.corpus.keyword(cursor.next())).append("\",\"fields\":[\"content\"]}\n");
+        }
+        return execute(Curl.post(cluster.node, INDEX + "/_fsuggest/update/_bulk").body(buf.toString()));
+    }
+
+    @Benchmark
+    public int updateDocument(final Cluster cluster, final Cursor cursor) throws IOException {
+        return execute(Curl.post(cluster.node, INDEX + "/_fsuggest/update/document")
+            .body("{\"document\":\"" + cluster.corpus.document(cursor.next()) + "\",\"fields\":[\"content\"]}"));
+    }
+
+    private static int execute(final CurlRequest request) throws IOException {
+        try (CurlResponse response = request.execute()) {
+            return response.getHttpStatusCode();
+        }
+    }
+}
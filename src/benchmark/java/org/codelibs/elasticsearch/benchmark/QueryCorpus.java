@@ -0,0 +1,64 @@
+package org.codelibs.elasticsearch.benchmark;
+
+import java.util.Random;
+
+/**
+ * Synthetic Japanese/English keywords and documents generated from a fixed seed,
+ * so that runs of different releases see the same data.
+ */
+public class QueryCorpus {
+    public static final long SEED = 20160901L;
+
+    private static final String[] JA_WORDS = { "検索", "エンジン", "全文", "索引", "日本語", "形態素", "解析", "辞書", "候補", "入力",
+        "補完", "文書", "管理", "設定", "性能", "速度", "分散", "集計", "言語", "情報" };
+
+    private static final String[] EN_WORDS = { "search", "engine", "fulltext", "index", "suggest", "query", "document",
+        "cluster", "shard", "node", "analyzer", "token", "filter", "score", "ranking", "cache", "latency", "throughput",
+        "replica", "mapping" };
+
+    protected final String[] keywords;
+
+    protected final String[] queries;
+
+    protected final String[] documents;
+
+    public QueryCorpus(final int size) {
+        this(SEED, size);
+    }
+
+    public QueryCorpus(final long seed, final int size) {
+        final Random random = new Random(seed);
+        keywords = new String[size];
+        queries = new String[size];
+        documents = new String[size];
+        for (int i = 0; i < size; i++) {
+            final boolean ja = random.nextBoolean();
+            final String[] words = ja ? JA_WORDS : EN_WORDS;
+            final String first = words[random.nextInt(words.length)];
+            final String second = words[random.nextInt(words.length)];
+            keywords[i] = first + " " + second;
+            queries[i] = first.substring(0, Math.max(1, Math.min(first.length(), 1 + random.nextInt(first.length()))));
+            final StringBuilder buf = new StringBuilder();
+            for (int j = 0; j < 20; j++) {
+                buf.append(words[random.nextInt(words.length)]).append(ja ? "の" : " ");
+            }
+            documents[i] = buf.toString();
+        }
+    }
+
+    public int size() {
+        return keywords.length;
+    }
+
+    public String keyword(final int i) {
+        return keywords[i % keywords.length];
+    }
+
+    public String query(final int i) {
+        return queries[i % queries.length];
+    }
+
+    public String document(final int i) {
+        return documents[i % documents.length];
+    }
+}
@@ -1,20 +1,44 @@
 package org.codelibs.elasticsearch;
 
 import com.google.common.collect.Lists;
+import org.codelibs.elasticsearch.action.FessSuggestStatsAction;
+import org.codelibs.elasticsearch.action.TransportFessSuggestStatsAction;
 import org.codelibs.elasticsearch.module.FessSuggestModule;
 import org.codelibs.elasticsearch.rest.PopularWordsRestAction;
+import org.codelibs.elasticsearch.rest.FessSuggestBulkUpdateRestAction;
 import org.codelibs.elasticsearch.rest.FessSuggestCreateRestAction;
+import org.codelibs.elasticsearch.rest.FessSuggestFromIndexRestAction;
+import org.codelibs.elasticsearch.rest.FessSuggestMultiSearchRestAction;
 import org.codelibs.elasticsearch.rest.FessSuggestRestAction;
+import org.codelibs.elasticsearch.rest.FessSuggestStatsRestAction;
 import org.codelibs.elasticsearch.rest.FessSuggestUpdateRestAction;
+import org.codelibs.elasticsearch.rest.TrendingWordsRestAction;
 import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.elasticsearch.action.ActionModule;
+import org.elasticsearch.cluster.ClusterModule;
+import org.elasticsearch.cluster.settings.Validator;
 import org.elasticsearch.common.component.LifecycleComponent;
 import org.elasticsearch.common.inject.Module;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.rest.RestModule;
 
 import java.util.Collection;
 
 public class FessSuggestPlugin extends Plugin {
+    public static final String THREAD_POOL_READ = "fsuggest_read";
+    public static final String THREAD_POOL_WRITE = "fsuggest_write";
+    public static final String THREAD_POOL_PWORDS = "fsuggest_pwords";
+
+    private static final String THREAD_POOL_SETTINGS_PREFIX = "threadpool.";
+
+    private final Settings settings;
+
+    public FessSuggestPlugin(final Settings settings) {
+        this.settings = settings;
+    }
+
     @Override
     public String name() {
         return "FessSuggestPlugin";
@@ -25,12 +49,45 @@ public class FessSuggestPlugin extends Plugin {
         return "This is a elasticsearch-fess-suggest plugin.";
     }
 
+    public void onModule(final ActionModule module) {
+        module.registerAction(FessSuggestStatsAction.INSTANCE, TransportFessSuggestStatsAction.class);
+    }
+
+    public void onModule(final ClusterModule module) {
+        module.registerClusterDynamicSetting(FessSuggestService.SETTINGS_NGWORD_KEY, Validator.EMPTY);
+        module.registerIndexDynamicSetting(FessSuggestService.INDEX_SUGGEST_TIMEOUT, Validator.TIME);
+        module.registerIndexDynamicSetting(FessSuggestService.INDEX_SUGGEST_BOOST, Validator.NON_NEGATIVE_FLOAT);
+    }
+
     // for Rest API
     public void onModule(final RestModule module) {
         module.addRestAction(FessSuggestRestAction.class);
+        module.addRestAction(FessSuggestMultiSearchRestAction.class);
         module.addRestAction(FessSuggestCreateRestAction.class);
         module.addRestAction(FessSuggestUpdateRestAction.class);
+        module.addRestAction(FessSuggestBulkUpdateRestAction.class);
+        module.addRestAction(FessSuggestFromIndexRestAction.class);
         module.addRestAction(PopularWordsRestAction.class);
+        module.addRestAction(TrendingWordsRestAction.class);
+        module.addRestAction(FessSuggestStatsRestAction.class);
+    }
+
+    // for Thread Pool
+    @Override
+    public Settings additionalSettings() {
+        final int processors = EsExecutors.boundedNumberOfProcessors(settings);
+        final Settings.Builder builder = Settings.settingsBuilder();
+        putFixedThreadPool(builder, THREAD_POOL_READ, processors, 1000);
+        putFixedThreadPool(builder, THREAD_POOL_WRITE, Math.max(1, processors / 2), 200);
+        putFixedThreadPool(builder, THREAD_POOL_PWORDS, Math.max(1, processors / 4), 100);
+        return builder.build();
+    }
+
+    private void putFixedThreadPool(final Settings.Builder builder, final String name, final int size, final int queueSize) {
+        final String prefix = THREAD_POOL_SETTINGS_PREFIX + name + ".";
+        builder.put(prefix + "type", "fixed");
+        builder.put(prefix + "size", size);
+        builder.put(prefix + "queue_size", queueSize);
     }
 
     // for Service
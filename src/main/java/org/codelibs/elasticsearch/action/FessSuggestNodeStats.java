@@ -0,0 +1,39 @@
+package org.codelibs.elasticsearch.action;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.codelibs.elasticsearch.service.SuggestMetrics;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+public class FessSuggestNodeStats extends BaseNodeResponse {
+
+    private Map<String, Map<String, SuggestMetrics.Snapshot>> latency;
+
+    FessSuggestNodeStats() {
+    }
+
+    public FessSuggestNodeStats(final DiscoveryNode node, final Map<String, Map<String, SuggestMetrics.Snapshot>> latency) {
+        super(node);
+        this.latency = latency;
+    }
+
+    public Map<String, Map<String, SuggestMetrics.Snapshot>> getLatency() {
+        return latency;
+    }
+
+    @Override
+    public void readFrom(final StreamInput in) throws IOException {
+        super.readFrom(in);
+        latency = SuggestMetrics.readFrom(in);
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        SuggestMetrics.writeTo(out, latency);
+    }
+}
@@ -0,0 +1,25 @@
+package org.codelibs.elasticsearch.action;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.client.ElasticsearchClient;
+
+public class FessSuggestStatsAction extends Action<FessSuggestStatsRequest, FessSuggestStatsResponse, FessSuggestStatsRequestBuilder> {
+
+    public static final FessSuggestStatsAction INSTANCE = new FessSuggestStatsAction();
+
+    public static final String NAME = "cluster:monitor/fsuggest/stats";
+
+    private FessSuggestStatsAction() {
+        super(NAME);
+    }
+
+    @Override
+    public FessSuggestStatsResponse newResponse() {
+        return new FessSuggestStatsResponse();
+    }
+
+    @Override
+    public FessSuggestStatsRequestBuilder newRequestBuilder(final ElasticsearchClient client) {
+        return new FessSuggestStatsRequestBuilder(client, this);
+    }
+}
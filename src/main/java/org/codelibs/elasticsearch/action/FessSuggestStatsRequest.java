@@ -0,0 +1,13 @@
+package org.codelibs.elasticsearch.action;
+
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+
+public class FessSuggestStatsRequest extends BaseNodesRequest<FessSuggestStatsRequest> {
+
+    public FessSuggestStatsRequest() {
+    }
+
+    public FessSuggestStatsRequest(final String... nodesIds) {
+        super(nodesIds);
+    }
+}
@@ -0,0 +1,12 @@
+package org.codelibs.elasticsearch.action;
+
+import org.elasticsearch.action.support.nodes.NodesOperationRequestBuilder;
+import org.elasticsearch.client.ElasticsearchClient;
+
+public class FessSuggestStatsRequestBuilder
+        extends NodesOperationRequestBuilder<FessSuggestStatsRequest, FessSuggestStatsResponse, FessSuggestStatsRequestBuilder> {
+
+    public FessSuggestStatsRequestBuilder(final ElasticsearchClient client, final FessSuggestStatsAction action) {
+        super(client, action, new FessSuggestStatsRequest());
+    }
+}
@@ -0,0 +1,57 @@
+package org.codelibs.elasticsearch.action;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codelibs.elasticsearch.service.SuggestMetrics;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+public class FessSuggestStatsResponse extends BaseNodesResponse<FessSuggestNodeStats> {
+
+    private int failedNodes;
+
+    FessSuggestStatsResponse() {
+    }
+
+    public FessSuggestStatsResponse(final ClusterName clusterName, final FessSuggestNodeStats[] nodes, final int failedNodes) {
+        super(clusterName, nodes);
+        this.failedNodes = failedNodes;
+    }
+
+    public int getFailedNodes() {
+        return failedNodes;
+    }
+
+    public Map<String, Map<String, SuggestMetrics.Snapshot>> getMergedLatency() {
+        final Map<String, Map<String, SuggestMetrics.Snapshot>> merged = new HashMap<>();
+        for (final FessSuggestNodeStats node : nodes) {
+            SuggestMetrics.merge(merged, node.getLatency());
+        }
+        return merged;
+    }
+
+    @Override
+    public void readFrom(final StreamInput in) throws IOException {
+        super.readFrom(in);
+        failedNodes = in.readVInt();
+        nodes = new FessSuggestNodeStats[in.readVInt()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new FessSuggestNodeStats();
+            nodes[i].readFrom(in);
+        }
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(failedNodes);
+        out.writeVInt(nodes.length);
+        for (final FessSuggestNodeStats node : nodes) {
+            node.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.codelibs.elasticsearch.action;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+public class TransportFessSuggestStatsAction extends TransportNodesAction<FessSuggestStatsRequest, FessSuggestStatsResponse,
+        TransportFessSuggestStatsAction.NodeRequest, FessSuggestNodeStats> {
+
+    protected final FessSuggestService fessSuggestService;
+
+    @Inject
+    public TransportFessSuggestStatsAction(final Settings settings, final ClusterName clusterName, final ThreadPool threadPool,
+            final ClusterService clusterService, final TransportService transportService, final ActionFilters actionFilters,
+            final IndexNameExpressionResolver indexNameExpressionResolver, final FessSuggestService fessSuggestService) {
+        super(settings, FessSuggestStatsAction.NAME, clusterName, threadPool, clusterService, transportService, actionFilters,
+            indexNameExpressionResolver, FessSuggestStatsRequest.class, NodeRequest.class, ThreadPool.Names.MANAGEMENT);
+        this.fessSuggestService = fessSuggestService;
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    protected FessSuggestStatsResponse newResponse(final FessSuggestStatsRequest request, final AtomicReferenceArray responses) {
+        final List<FessSuggestNodeStats> nodeStats = new ArrayList<>();
+        for (int i = 0; i < responses.length(); i++) {
+            final Object response = responses.get(i);
+            if (response instanceof FessSuggestNodeStats) {
+                nodeStats.add((FessSuggestNodeStats) response);
+            }
+        }
+        return new FessSuggestStatsResponse(clusterName, nodeStats.toArray(new FessSuggestNodeStats[nodeStats.size()]),
+            responses.length() - nodeStats.size());
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest(final String nodeId, final FessSuggestStatsRequest request) {
+        return new NodeRequest(request, nodeId);
+    }
+
+    @Override
+    protected FessSuggestNodeStats newNodeResponse() {
+        return new FessSuggestNodeStats();
+    }
+
+    @Override
+    protected FessSuggestNodeStats nodeOperation(final NodeRequest request) {
+        return new FessSuggestNodeStats(clusterService.localNode(), fessSuggestService.metrics().snapshot());
+    }
+
+    @Override
+    protected boolean accumulateExceptions() {
+        return false;
+    }
+
+    public static class NodeRequest extends BaseNodeRequest {
+
+        public NodeRequest() {
+        }
+
+        NodeRequest(final FessSuggestStatsRequest request, final String nodeId) {
+            super(request, nodeId);
+        }
+    }
+}
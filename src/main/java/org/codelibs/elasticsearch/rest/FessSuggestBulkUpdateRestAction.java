@@ -0,0 +1,260 @@
+package org.codelibs.elasticsearch.rest;
+
+import static org.elasticsearch.rest.RestStatus.OK;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Strings;
+import org.codelibs.core.lang.StringUtil;
+import org.codelibs.elasticsearch.FessSuggestPlugin;
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.codelibs.elasticsearch.service.SearchWord;
+import org.codelibs.elasticsearch.service.SuggestMetrics;
+import org.codelibs.fess.suggest.index.SuggestIndexResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.threadpool.ThreadPool;
+
+public class FessSuggestBulkUpdateRestAction extends BaseRestHandler {
+
+    public static final String PARAM_INDEX = "index";
+    public static final String PARAM_BATCH_SIZE = "batch_size";
+
+    public static final String SETTINGS_BATCH_SIZE = "fsuggest.update.bulk.batch_size";
+
+    private static final byte LINE_SEPARATOR = '\n';
+
+    protected final ThreadPool threadPool;
+
+    protected final FessSuggestService fessSuggestService;
+
+    protected final int batchSize;
+
+    @Inject
+    public FessSuggestBulkUpdateRestAction(final Settings settings, final Client client,
+                                           final RestController controller, final ThreadPool threadPool, final FessSuggestService fessSuggestService) {
+        super(settings, controller, client);
+
+        this.threadPool = threadPool;
+
+        this.fessSuggestService = fessSuggestService;
+
+        controller.registerHandler(RestRequest.Method.POST,
+            "/{index}/_fsuggest/update/_bulk", this);
+        controller.registerHandler(RestRequest.Method.PUT,
+            "/{index}/_fsuggest/update/_bulk", this);
+
+        batchSize = settings.getAsInt(SETTINGS_BATCH_SIZE, 1000);
+    }
+
+    @Override
+    protected void handleRequest(final RestRequest restRequest, final RestChannel restChannel, final Client client) throws Exception {
+        final long received = System.nanoTime();
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_WRITE).execute(() -> {
+            final long started = System.nanoTime();
+            final String indexId = restRequest.param(PARAM_INDEX);
+            try {
+                final long startTime = System.currentTimeMillis();
+                final int batchSize = Math.max(1, restRequest.paramAsInt(PARAM_BATCH_SIZE, this.batchSize));
+
+                final List<BatchResult> results = new ArrayList<>();
+                final Batch batch = new Batch();
+                final BytesReference content = restRequest.content();
+                final int length = content.length();
+                int from = 0;
+                while (from < length) {
+                    int next = from;
+                    while (next < length && content.get(next) != LINE_SEPARATOR) {
+                        next++;
+                    }
+                    if (next > from) {
+                        batch.add(content.slice(from, next - from));
+                        if (batch.size() >= batchSize) {
+                            results.add(batch.flush(indexId));
+                        }
+                    }
+                    from = next + 1;
+                }
+                if (batch.hasRecords()) {
+                    results.add(batch.flush(indexId));
+                }
+
+                final XContentBuilder builder = JsonXContent.contentBuilder();
+                final String pretty = restRequest.param("pretty");
+                if (pretty != null && !"false".equalsIgnoreCase(pretty)) {
+                    builder.prettyPrint().lfAtEnd();
+                }
+                long accepted = 0;
+                long rejected = 0;
+                for (final BatchResult result : results) {
+                    accepted += result.accepted;
+                    rejected += result.rejected;
+                }
+                if (accepted == 0 && batch.throttled != null) {
+                    // nothing could be buffered, let the client back off
+                    throw batch.throttled;
+                }
+                builder.startObject();
+                builder.field("took", System.currentTimeMillis() - startTime);
+                builder.field("accepted", accepted);
+                builder.field("rejected", rejected);
+                if (fessSuggestService.isWriteBehind()) {
+                    builder.field("buffered", true);
+                }
+                builder.startArray("batches");
+                for (final BatchResult result : results) {
+                    builder.startObject();
+                    builder.field("took", result.took);
+                    builder.field("accepted", result.accepted);
+                    builder.field("rejected", result.rejected);
+                    builder.endObject();
+                }
+                builder.endArray();
+                builder.endObject();
+                final long responded = System.nanoTime();
+                restChannel.sendResponse(new BytesRestResponse(OK, builder));
+                fessSuggestService.metrics().record(SuggestMetrics.ENDPOINT_BULK, indexId, started - received, responded - started,
+                    System.nanoTime() - responded);
+            } catch (final Throwable t) {
+                sendErrorResponse(restChannel, indexId, t);
+            }
+        });
+    }
+
+    protected static String[] toArray(final Object value) {
+        if (value instanceof List) {
+            return ((List<?>) value).stream().map(Object::toString).toArray(n -> new String[n]);
+        } else if (value != null) {
+            return new String[] { value.toString() };
+        }
+        return StringUtil.EMPTY_STRINGS;
+    }
+
+    private void sendErrorResponse(final RestChannel channel, final String index, final Throwable t) {
+        fessSuggestService.metrics().recordError(SuggestMetrics.ENDPOINT_BULK, index);
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to process the request.", t);
+            }
+            channel.sendResponse(new BytesRestResponse(channel, t));
+        } catch (final IOException e) {
+            logger.error("Failed to send a failure response.", e);
+        }
+    }
+
+    protected class Batch {
+        protected final Map<String, SearchWord> searchWords = new LinkedHashMap<>();
+
+        protected int rejected = 0;
+
+        protected EsRejectedExecutionException throttled;
+
+        protected void add(final BytesReference line) {
+            final SearchWord searchWord;
+            try {
+                final Map<String, Object> record = XContentHelper.convertToMap(line, false).v2();
+                final Object keyword = record.get("keyword");
+                final Object freq = record.get("freq");
+                final int frequency = freq instanceof Number ? ((Number) freq).intValue() : 1;
+                if (keyword == null || Strings.isNullOrEmpty(keyword.toString()) || frequency <= 0) {
+                    rejected++;
+                    return;
+                }
+                searchWord = new SearchWord(keyword.toString(), toArray(record.get("fields")), toArray(record.get("tags")),
+                    toArray(record.get("roles")), toArray(record.get("langs")), frequency);
+            } catch (final Exception e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Failed to parse a record.", e);
+                }
+                rejected++;
+                return;
+            }
+
+            final SearchWord current = searchWords.get(searchWord.getKey());
+            if (current == null) {
+                searchWords.put(searchWord.getKey(), searchWord);
+            } else {
+                current.merge(searchWord);
+            }
+        }
+
+        protected int size() {
+            return searchWords.size();
+        }
+
+        protected boolean hasRecords() {
+            return !searchWords.isEmpty() || rejected > 0;
+        }
+
+        protected BatchResult flush(final String indexId) {
+            final long startTime = System.currentTimeMillis();
+            final List<SearchWord> words = new ArrayList<>(searchWords.values());
+            searchWords.clear();
+            long records = 0;
+            for (final SearchWord searchWord : words) {
+                records += searchWord.getRecords();
+            }
+            final long rejected = this.rejected;
+            this.rejected = 0;
+            if (words.isEmpty()) {
+                return new BatchResult(System.currentTimeMillis() - startTime, 0, rejected);
+            }
+
+            if (fessSuggestService.isWriteBehind()) {
+                return buffer(indexId, words, records, rejected, startTime);
+            }
+
+            try {
+                final SuggestIndexResponse response = fessSuggestService.indexFromSearchWords(indexId, words);
+                if (response.hasError()) {
+                    logger.warn("Failed to index {} search words: {}", words.size(), response.getErrors());
+                    return new BatchResult(System.currentTimeMillis() - startTime, 0, rejected + records);
+                }
+                return new BatchResult(System.currentTimeMillis() - startTime, records, rejected);
+            } catch (final Exception e) {
+                logger.warn("Failed to index {} search words.", e, words.size());
+                return new BatchResult(System.currentTimeMillis() - startTime, 0, rejected + records);
+            }
+        }
+
+        protected BatchResult buffer(final String indexId, final List<SearchWord> words, final long records, final long rejected,
+                final long startTime) {
+            long accepted = 0;
+            for (final SearchWord searchWord : words) {
+                try {
+                    accepted += fessSuggestService.bufferSearchWord(indexId, searchWord);
+                } catch (final EsRejectedExecutionException e) {
+                    throttled = e;
+                }
+            }
+            return new BatchResult(System.currentTimeMillis() - startTime, accepted, rejected + records - accepted);
+        }
+    }
+
+    protected static class BatchResult {
+        protected final long took;
+        protected final long accepted;
+        protected final long rejected;
+
+        protected BatchResult(final long took, final long accepted, final long rejected) {
+            this.took = took;
+            this.accepted = accepted;
+            this.rejected = rejected;
+        }
+    }
+}
@@ -4,7 +4,9 @@ import static org.elasticsearch.rest.RestStatus.OK;
 
 import java.io.IOException;
 
+import org.codelibs.elasticsearch.FessSuggestPlugin;
 import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.codelibs.elasticsearch.service.SuggestMetrics;
 import org.codelibs.fess.suggest.Suggester;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.inject.Inject;
@@ -42,13 +44,17 @@ public class FessSuggestCreateRestAction extends BaseRestHandler {
 
     @Override
     protected void handleRequest(final RestRequest restRequest, final RestChannel restChannel, final Client client) throws Exception {
-        threadPool.executor(ThreadPool.Names.SUGGEST).execute(() -> {
+        final long received = System.nanoTime();
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_WRITE).execute(() -> {
+            final long started = System.nanoTime();
+            final String indexId = restRequest.param(PARAM_INDEX);
             try {
-                final String indexId = restRequest.param(PARAM_INDEX);
 
                 fessSuggestService.deleteSuggester(indexId);
                 final Suggester suggester = fessSuggestService.suggester(indexId);
                 final boolean created = suggester.createIndexIfNothing();
+                fessSuggestService.invalidateCache(indexId);
+                final long responded = System.nanoTime();
 
                 final XContentBuilder builder = JsonXContent.contentBuilder();
                 final String pretty = restRequest.param("pretty");
@@ -59,7 +65,10 @@ public class FessSuggestCreateRestAction extends BaseRestHandler {
                 builder.field("acknowledged", created);
                 builder.endObject();
                 restChannel.sendResponse(new BytesRestResponse(OK, builder));
+                fessSuggestService.metrics().record(SuggestMetrics.ENDPOINT_CREATE, indexId, started - received,
+                    responded - started, System.nanoTime() - responded);
             } catch (final Throwable t) {
+                fessSuggestService.metrics().recordError(SuggestMetrics.ENDPOINT_CREATE, indexId);
                 sendErrorResponse(restChannel, t);
             }
         });
@@ -0,0 +1,165 @@
+package org.codelibs.elasticsearch.rest;
+
+import static org.elasticsearch.rest.RestStatus.CONFLICT;
+import static org.elasticsearch.rest.RestStatus.NOT_FOUND;
+import static org.elasticsearch.rest.RestStatus.OK;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Strings;
+import org.codelibs.elasticsearch.ElasticsearchFessSuggestException;
+import org.codelibs.elasticsearch.FessSuggestPlugin;
+import org.codelibs.elasticsearch.service.DocumentIndexJob;
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.threadpool.ThreadPool;
+
+public class FessSuggestFromIndexRestAction extends BaseRestHandler {
+
+    protected final ThreadPool threadPool;
+
+    protected final FessSuggestService fessSuggestService;
+
+    @Inject
+    public FessSuggestFromIndexRestAction(final Settings settings, final Client client,
+                                          final RestController controller, final ThreadPool threadPool, final FessSuggestService fessSuggestService) {
+        super(settings, controller, client);
+
+        this.threadPool = threadPool;
+
+        this.fessSuggestService = fessSuggestService;
+
+        controller.registerHandler(RestRequest.Method.POST,
+            "/{index}/_fsuggest/update/from_index", this);
+        controller.registerHandler(RestRequest.Method.GET,
+            "/{index}/_fsuggest/update/from_index", this);
+        controller.registerHandler(RestRequest.Method.DELETE,
+            "/{index}/_fsuggest/update/from_index", this);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void handleRequest(final RestRequest restRequest, final RestChannel restChannel, final Client client) {
+        final String indexId = restRequest.param("index");
+        if (restRequest.method() == RestRequest.Method.GET) {
+            sendJob(restRequest, restChannel, fessSuggestService.indexJob(indexId));
+            return;
+        } else if (restRequest.method() == RestRequest.Method.DELETE) {
+            sendJob(restRequest, restChannel, fessSuggestService.cancelIndexJob(indexId));
+            return;
+        }
+
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_WRITE).execute(() -> {
+            try {
+                final Map<String, Object> requestMap;
+                if (restRequest.hasContent()) {
+                    final String source = restRequest.content().toUtf8();
+                    requestMap = XContentFactory
+                        .xContent(source)
+                        .createParser(source).map();
+                } else {
+                    requestMap = Collections.emptyMap();
+                }
+
+                final String sourceIndex = restRequest.param("source_index", (String) requestMap.get("source_index"));
+                if (Strings.isNullOrEmpty(sourceIndex)) {
+                    throw new ElasticsearchFessSuggestException("source_index is null.");
+                }
+                final String sourceType = restRequest.param("source_type", (String) requestMap.get("source_type"));
+
+                final String[] fields;
+                final Object fieldsObj = requestMap.get("fields");
+                if (fieldsObj instanceof List) {
+                    fields = ((List<String>) fieldsObj).stream().toArray(n -> new String[n]);
+                } else {
+                    fields = Strings.isNullOrEmpty(restRequest.param("fields")) ? new String[0] : restRequest.param("fields").split(",");
+                }
+                if (fields.length == 0) {
+                    throw new ElasticsearchFessSuggestException("fields is empty.");
+                }
+
+                final Object batchSizeObj = requestMap.get("batch_size");
+                final int batchSize = restRequest.paramAsInt("batch_size",
+                    batchSizeObj instanceof Number ? ((Number) batchSizeObj).intValue() : 0);
+
+                final DocumentIndexJob job;
+                try {
+                    job = fessSuggestService.startIndexJob(indexId, sourceIndex, sourceType, fields, batchSize);
+                } catch (final IllegalStateException e) {
+                    sendJob(restRequest, restChannel, CONFLICT, fessSuggestService.indexJob(indexId));
+                    return;
+                }
+                sendJob(restRequest, restChannel, OK, job);
+            } catch (final Throwable t) {
+                sendErrorResponse(restChannel, t);
+            }
+        });
+    }
+
+    private void sendJob(final RestRequest restRequest, final RestChannel restChannel, final DocumentIndexJob job) {
+        sendJob(restRequest, restChannel, job != null ? OK : NOT_FOUND, job);
+    }
+
+    private void sendJob(final RestRequest restRequest, final RestChannel restChannel, final RestStatus status,
+            final DocumentIndexJob job) {
+        try {
+            final XContentBuilder builder = JsonXContent.contentBuilder();
+            final String pretty = restRequest.param("pretty");
+            if (pretty != null && !"false".equalsIgnoreCase(pretty)) {
+                builder.prettyPrint().lfAtEnd();
+            }
+            builder.startObject();
+            builder.field("index", restRequest.param("index"));
+            if (job != null) {
+                builder.field("status", job.getStatus().name().toLowerCase());
+                builder.field("source_index", job.getSourceIndex());
+                if (job.getSourceType() != null) {
+                    builder.field("source_type", job.getSourceType());
+                }
+                builder.array("fields", job.getFields());
+                builder.field("batch_size", job.getBatchSize());
+                builder.field("total", job.getTotal());
+                builder.field("processed", job.getProcessed());
+                builder.field("suggest_docs", job.getSuggestDocs());
+                builder.field("errors", job.getErrors());
+                builder.field("docs_per_sec", job.getDocsPerSecond());
+                builder.field("start_time", job.getStartTime());
+                builder.field("elapsed", job.getElapsed());
+                if (job.getFailure() != null) {
+                    builder.field("failure", job.getFailure());
+                }
+            } else {
+                builder.field("status", "not_found");
+            }
+            builder.endObject();
+            restChannel.sendResponse(new BytesRestResponse(status, builder));
+        } catch (final IOException e) {
+            sendErrorResponse(restChannel, e);
+        }
+    }
+
+    private void sendErrorResponse(final RestChannel channel, final Throwable t) {
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to process the request.", t);
+            }
+            channel.sendResponse(new BytesRestResponse(channel, t));
+        } catch (final IOException e) {
+            logger.error("Failed to send a failure response.", e);
+        }
+    }
+}
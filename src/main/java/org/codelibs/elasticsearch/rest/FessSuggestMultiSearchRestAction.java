@@ -0,0 +1,195 @@
+package org.codelibs.elasticsearch.rest;
+
+import static org.elasticsearch.rest.RestStatus.OK;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.Strings;
+import org.codelibs.elasticsearch.FessSuggestPlugin;
+import org.codelibs.elasticsearch.ElasticsearchFessSuggestException;
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.codelibs.elasticsearch.service.MultiSearchClient;
+import org.codelibs.fess.suggest.Suggester;
+import org.codelibs.fess.suggest.request.suggest.SuggestRequestBuilder;
+import org.codelibs.fess.suggest.request.suggest.SuggestResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.threadpool.ThreadPool;
+
+public class FessSuggestMultiSearchRestAction extends BaseRestHandler {
+
+    public static final String PARAM_REQUESTS = "requests";
+
+    private static final String SEP_PARAM = ",";
+
+    protected final ThreadPool threadPool;
+
+    protected final FessSuggestService fessSuggestService;
+
+    @Inject
+    public FessSuggestMultiSearchRestAction(final Settings settings, final Client client, final RestController controller,
+            final ThreadPool threadPool, final FessSuggestService fessSuggestService) {
+        super(settings, controller, client);
+
+        this.threadPool = threadPool;
+
+        this.fessSuggestService = fessSuggestService;
+
+        controller.registerHandler(RestRequest.Method.POST,
+            "/_fsuggest/_msearch", this);
+        controller.registerHandler(RestRequest.Method.GET,
+            "/_fsuggest/_msearch", this);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void handleRequest(final RestRequest request, final RestChannel channel, final Client client) {
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_READ).execute(() -> {
+            try {
+                final long start = System.currentTimeMillis();
+                final String source = request.content().toUtf8();
+                final Map<String, Object> requestMap = XContentFactory
+                    .xContent(source)
+                    .createParser(source).map();
+                final Object requestsObj = requestMap.get(PARAM_REQUESTS);
+                if (!(requestsObj instanceof List)) {
+                    throw new ElasticsearchFessSuggestException("\"" + PARAM_REQUESTS + "\" must be an array.");
+                }
+                final List<Object> requests = (List<Object>) requestsObj;
+                final AtomicReferenceArray<Object> responses = new AtomicReferenceArray<>(requests.size());
+                final AtomicInteger remaining = new AtomicInteger(requests.size() + 1);
+                final Runnable done = () -> {
+                    if (remaining.decrementAndGet() == 0) {
+                        sendResponse(request, channel, System.currentTimeMillis() - start, responses);
+                    }
+                };
+
+                final MultiSearchClient multiSearchClient = new MultiSearchClient(client);
+                for (int i = 0; i < requests.size(); i++) {
+                    final int pos = i;
+                    final Object itemObj = requests.get(i);
+                    if (!(itemObj instanceof Map)) {
+                        responses.set(pos, new ElasticsearchFessSuggestException("Suggest request must be an object."));
+                        done.run();
+                        continue;
+                    }
+                    final Map<String, Object> item = (Map<String, Object>) itemObj;
+                    final String index = toParam(item.get(FessSuggestRestAction.PARAM_INDEX));
+                    final String query = toParam(item.get(FessSuggestRestAction.PARAM_QUERY));
+                    if (Strings.isNullOrEmpty(index)) {
+                        responses.set(pos, new ElasticsearchFessSuggestException("\"index\" is required."));
+                        done.run();
+                        continue;
+                    }
+                    if (Strings.isNullOrEmpty(query) || fessSuggestService.isBadQuery(query)) {
+                        responses.set(pos, index);
+                        done.run();
+                        continue;
+                    }
+                    try {
+                        final String sizeStr = toParam(item.get(FessSuggestRestAction.PARAM_SIZE));
+                        final int size = Strings.isNullOrEmpty(sizeStr) ? 10 : Integer.parseInt(sizeStr);
+                        final float weight = fessSuggestService.getPrefixMatchWeight(index);
+                        final Suggester suggester = fessSuggestService.suggester(index);
+                        final SuggestRequestBuilder suggestRequestBuilder = new SuggestRequestBuilder(multiSearchClient,
+                            suggester.getReadingConverter(), suggester.getNormalizer())
+                            .setIndex(suggester.getIndex()).setType(suggester.getType());
+                        FessSuggestRestAction.setupRequestBuilder(suggestRequestBuilder, query, size,
+                            toParam(item.get(FessSuggestRestAction.PARAM_TAGS)),
+                            toParam(item.get(FessSuggestRestAction.PARAM_ROLES)),
+                            toParam(item.get(FessSuggestRestAction.PARAM_FIELDS)), weight);
+                        suggestRequestBuilder.execute()
+                            .then(r -> {
+                                responses.set(pos, r);
+                                done.run();
+                            }).error(t -> {
+                                responses.set(pos, t);
+                                done.run();
+                            });
+                    } catch (final RuntimeException e) {
+                        responses.set(pos, e);
+                        done.run();
+                    }
+                }
+                multiSearchClient.flush();
+                done.run();
+            } catch (final Throwable t) {
+                sendErrorResponse(channel, t);
+            }
+        });
+    }
+
+    private void sendResponse(final RestRequest request, final RestChannel channel, final long took,
+            final AtomicReferenceArray<Object> responses) {
+        try {
+            final boolean compact = request.paramAsBoolean(FessSuggestRestAction.PARAM_COMPACT, false);
+            final XContentBuilder builder = channel.newBuilder();
+            builder.startObject();
+            builder.field("took", took);
+            builder.startArray("responses");
+            for (int i = 0; i < responses.length(); i++) {
+                final Object response = responses.get(i);
+                builder.startObject();
+                if (response instanceof SuggestResponse) {
+                    FessSuggestRestAction.buildSuggestResponse(builder, (SuggestResponse) response, compact);
+                } else if (response instanceof Throwable) {
+                    final Throwable t = (Throwable) response;
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Failed to process the suggest request.", t);
+                    }
+                    builder.field("error", t.getMessage() != null ? t.getMessage() : t.getClass().getName());
+                } else {
+                    builder.field("index", response);
+                    builder.field("took", 0);
+                    builder.field("total", 0);
+                    builder.field("num", 0);
+                }
+                builder.endObject();
+            }
+            builder.endArray();
+            builder.endObject();
+            channel.sendResponse(new BytesRestResponse(OK, builder));
+        } catch (final IOException e) {
+            sendErrorResponse(channel, e);
+        }
+    }
+
+    private static String toParam(final Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof List) {
+            final StringBuilder buf = new StringBuilder();
+            for (final Object o : (List<?>) value) {
+                if (buf.length() > 0) {
+                    buf.append(SEP_PARAM);
+                }
+                buf.append(o);
+            }
+            return buf.toString();
+        }
+        return value.toString();
+    }
+
+    private void sendErrorResponse(final RestChannel channel, final Throwable t) {
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to process the request.", t);
+            }
+            channel.sendResponse(new BytesRestResponse(channel, t));
+        } catch (final IOException e) {
+            logger.error("Failed to send a failure response.", e);
+        }
+    }
+}
@@ -3,27 +3,45 @@ package org.codelibs.elasticsearch.rest;
 import static org.elasticsearch.rest.RestStatus.OK;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import com.google.common.base.Strings;
 
+import org.codelibs.elasticsearch.FessSuggestPlugin;
 import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.codelibs.elasticsearch.service.PrefixSuggestTier;
+import org.codelibs.elasticsearch.service.SuggestFanOut;
+import org.codelibs.elasticsearch.service.SuggestMetrics;
+import org.codelibs.elasticsearch.service.SuggestRequestCoalescer;
+import org.codelibs.elasticsearch.service.SuggestResponseCache;
+import org.codelibs.elasticsearch.service.SuggestSessionStore;
 import org.codelibs.fess.suggest.Suggester;
 import org.codelibs.fess.suggest.entity.SuggestItem;
 import org.codelibs.fess.suggest.exception.SuggesterException;
 import org.codelibs.fess.suggest.request.suggest.SuggestRequestBuilder;
+import org.codelibs.fess.suggest.request.suggest.SuggestResponse;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.ClusterService;
-import org.elasticsearch.cluster.metadata.AliasOrIndex;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
-import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
-import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.rest.BaseRestHandler;
 import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestChannel;
@@ -33,7 +51,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 public class FessSuggestRestAction extends BaseRestHandler {
 
-    public static final String INDEX_PREFIX_MATCH_WEIGHT = "index.suggest.prefix_match_weight";
+    public static final String INDEX_PREFIX_MATCH_WEIGHT = FessSuggestService.INDEX_PREFIX_MATCH_WEIGHT;
 
     public static final String PARAM_INDEX = "index";
     public static final String PARAM_QUERY = "q";
@@ -41,14 +59,18 @@ public class FessSuggestRestAction extends BaseRestHandler {
     public static final String PARAM_TAGS = "tags";
     public static final String PARAM_ROLES = "roles";
     public static final String PARAM_FIELDS = "fields";
+    public static final String PARAM_COMPACT = "compact";
+    public static final String PARAM_TIMEOUT = "timeout";
+    public static final String PARAM_SESSION = "session";
+    public static final String PARAM_FANOUT = "fanout";
 
-    public static final String SETTINGS_NGWORD_KEY = "fsuggest.ngquery";
+    public static final String SETTINGS_NGWORD_KEY = FessSuggestService.SETTINGS_NGWORD_KEY;
 
     private static final String SEP_PARAM = ",";
 
-    protected final ThreadPool threadPool;
+    private static final float DEFAULT_PREFIX_MATCH_WEIGHT = 2.0f;
 
-    protected final Set<String> badQueries;
+    protected final ThreadPool threadPool;
 
     protected final FessSuggestService fessSuggestService;
 
@@ -62,8 +84,6 @@ public class FessSuggestRestAction extends BaseRestHandler {
         this.threadPool = threadPool;
         this.clusterService = clusterService;
 
-        this.badQueries = getBadQuerySet(settings);
-
         this.fessSuggestService = fessSuggestService;
 
         controller.registerHandler(RestRequest.Method.GET,
@@ -75,7 +95,9 @@ public class FessSuggestRestAction extends BaseRestHandler {
     @Override
     protected void handleRequest(final RestRequest request,
             final RestChannel channel, final Client client) {
-        threadPool.executor(ThreadPool.Names.SUGGEST).execute( () -> {
+        final long received = System.nanoTime();
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_READ).execute( () -> {
+            final long started = System.nanoTime();
             try {
                 final String index = request.param(PARAM_INDEX);
                 final String query = request.param(PARAM_QUERY);
@@ -83,14 +105,13 @@ public class FessSuggestRestAction extends BaseRestHandler {
                 final String tags = request.param(PARAM_TAGS);
                 final String roles = request.param(PARAM_ROLES);
                 final String fields = request.param(PARAM_FIELDS);
+                final boolean compact = request.paramAsBoolean(PARAM_COMPACT, false);
+                final boolean fanOut = request.paramAsBoolean(PARAM_FANOUT, fessSuggestService.isFanOutEnabled());
+                final TimeValue timeout = request.paramAsTime(PARAM_TIMEOUT, fessSuggestService.getSuggestTimeout(index));
 
-                if(Strings.isNullOrEmpty(query) || isBadQuery(query)) {
+                if(Strings.isNullOrEmpty(query) || fessSuggestService.isBadQuery(query)) {
                     try {
-                        final XContentBuilder builder = JsonXContent.contentBuilder();
-                        final String pretty = request.param("pretty");
-                        if (pretty != null && !"false".equalsIgnoreCase(pretty)) {
-                            builder.prettyPrint().lfAtEnd();
-                        }
+                        final XContentBuilder builder = channel.newBuilder();
                         builder.startObject();
                         builder.field("index", request.param("index"));
                         builder.field("took", 0);
@@ -98,92 +119,191 @@ public class FessSuggestRestAction extends BaseRestHandler {
                         builder.field("num", 0);
                         builder.endObject();
                         channel.sendResponse(new BytesRestResponse(OK, builder));
+                        fessSuggestService.metrics().record(SuggestMetrics.ENDPOINT_SUGGEST, index, started - received, 0,
+                            System.nanoTime() - started);
                     } catch (IOException e) {
-                        sendErrorResponse(channel, e);
+                        sendErrorResponse(channel, index, e);
                     }
                     return;
                 }
 
-                final Suggester suggester = fessSuggestService.suggester(index);
-                final SuggestRequestBuilder suggestRequestBuilder = suggester.suggest().setSize(size);
-                if (!Strings.isNullOrEmpty(query)) {
-                    suggestRequestBuilder.setQuery(query);
-                }
-                if (!Strings.isNullOrEmpty(tags)) {
-                    final String[] tagsArray = tags.split(SEP_PARAM);
-                    for (final String tag : tagsArray) {
-                        suggestRequestBuilder.addTag(tag);
+                final float weight = fessSuggestService.getPrefixMatchWeight(index);
+                final String sessionId = request.param(PARAM_SESSION);
+                // sessions and the prefix tier do not know the boosts of backing indices
+                final SuggestSessionStore sessionStore = Strings.isNullOrEmpty(sessionId) || fanOut ? null
+                    : fessSuggestService.sessionStore();
+                final String sessionFilter = SuggestSessionStore.filter(tags, roles, fields, weight);
+                final PrefixSuggestTier prefixTier = fessSuggestService.isPrefixTierEnabled() && !fanOut && !hasWhitespace(query)
+                    ? fessSuggestService.prefixTier(index) : null;
+                if (prefixTier != null || sessionStore != null) {
+                    final List<String> readings = getReadings(fessSuggestService.suggester(index), query);
+                    if (readings != null && prefixTier != null) {
+                        final List<SuggestItem> items = prefixTier.lookup(query, readings, split(tags), split(roles), split(fields), size,
+                            weight > 0 ? weight : DEFAULT_PREFIX_MATCH_WEIGHT);
+                        fessSuggestService.recordPrefixTierLookup(items != null);
+                        if (items != null) {
+                            sendItems(channel, index, query, items, compact, received, started);
+                            return;
+                        }
                     }
-                }
-                if (!Strings.isNullOrEmpty(roles)) {
-                    final String[] rolesArray = roles.split(SEP_PARAM);
-                    for (final String role : rolesArray) {
-                        suggestRequestBuilder.addRole(role);
+                    if (readings != null && sessionStore != null) {
+                        final List<SuggestItem> items = sessionStore.narrow(sessionId, index, sessionFilter, query, readings, size);
+                        if (items != null) {
+                            sendItems(channel, index, query, items, compact, received, started);
+                            return;
+                        }
                     }
                 }
-                if (!Strings.isNullOrEmpty(fields)) {
-                    final String[] fieldsArray = fields.split(SEP_PARAM);
-                    for (final String field : fieldsArray) {
-                        suggestRequestBuilder.addField(field);
+
+                final SuggestResponseCache responseCache = fessSuggestService.responseCache();
+                final SuggestResponseCache.Key key = SuggestResponseCache.key(index, query, size, tags, roles, fields, weight,
+                    fanOut ? getOutputKey(request) + "|fanout" : getOutputKey(request));
+                if (responseCache != null && sessionStore == null) {
+                    final SuggestResponseCache.CachedResponse cached = responseCache.get(key);
+                    if (cached != null) {
+                        final long responded = System.nanoTime();
+                        channel.sendResponse(new BytesRestResponse(OK, cached.getContentType(), cached.getContent()));
+                        fessSuggestService.metrics().record(SuggestMetrics.ENDPOINT_SUGGEST, index, started - received,
+                            responded - started, System.nanoTime() - responded);
+                        return;
                     }
                 }
-                final MetaData metaData = clusterService.state().getMetaData();
-                final AliasOrIndex aliasOrIndex = metaData.getAliasAndIndexLookup().get(index);
-                if (aliasOrIndex != null) {
-                    float weight = 0;
-                    for (IndexMetaData indexMD : aliasOrIndex.getIndices()) {
-                        final Settings scriptSettings = indexMD.getSettings();
-                        final float value = scriptSettings.getAsFloat(INDEX_PREFIX_MATCH_WEIGHT, 0f);
-                        if (value > weight) {
-                            weight = value;
+
+                final AtomicBoolean done = new AtomicBoolean(false);
+                final AtomicReference<SuggestFanOut> fanOutRef = new AtomicReference<>();
+                final ScheduledFuture<?> timeoutFuture;
+                if (timeout.millis() > 0) {
+                    // not on the scheduler thread, and not on the read pool, which is busy when requests time out
+                    timeoutFuture = threadPool.schedule(timeout, ThreadPool.Names.GENERIC, () -> {
+                        final SuggestFanOut current = fanOutRef.get();
+                        // the hits merged so far are sent through the listener, with the pending indices as failed
+                        if (current != null && current.timeout()) {
+                            fessSuggestService.metrics().recordTimeout(SuggestMetrics.ENDPOINT_SUGGEST, index);
+                            return;
+                        }
+                        if (done.compareAndSet(false, true)) {
+                            sendTimedOut(channel, index, key, received, started);
+                        }
+                    });
+                } else {
+                    timeoutFuture = null;
+                }
+
+                final ActionListener<SuggestResponseCache.CachedResponse> listener = new ActionListener<SuggestResponseCache.CachedResponse>() {
+                    @Override
+                    public void onResponse(final SuggestResponseCache.CachedResponse response) {
+                        if (!done.compareAndSet(false, true)) {
+                            return;
                         }
+                        if (timeoutFuture != null) {
+                            timeoutFuture.cancel(false);
+                        }
+                        final long responded = System.nanoTime();
+                        channel.sendResponse(new BytesRestResponse(OK, response.getContentType(), response.getContent()));
+                        fessSuggestService.metrics().record(SuggestMetrics.ENDPOINT_SUGGEST, index, started - received,
+                            responded - started, System.nanoTime() - responded);
                     }
-                    if (weight > 0) {
-                        suggestRequestBuilder.setPrefixMatchWeight(weight);
+
+                    @Override
+                    public void onFailure(final Throwable t) {
+                        if (!done.compareAndSet(false, true)) {
+                            return;
+                        }
+                        if (timeoutFuture != null) {
+                            timeoutFuture.cancel(false);
+                        }
+                        sendErrorResponse(channel, index, t);
                     }
+                };
+                // session requests run their own search to fill the candidates of the session
+                final SuggestRequestCoalescer coalescer = sessionStore == null ? fessSuggestService.coalescer() : null;
+                if (coalescer != null && !coalescer.join(key, listener)) {
+                    return;
                 }
-                suggestRequestBuilder.execute()
-                    .then(r -> {
-                        try {
-                            final XContentBuilder builder = JsonXContent.contentBuilder();
-                            final String pretty = request.param("pretty");
-                            if (pretty != null && !"false".equalsIgnoreCase(pretty)) {
-                                builder.prettyPrint().lfAtEnd();
-                            }
-                            builder.startObject();
-                            builder.field("index", r.getIndex());
-                            builder.field("took", r.getTookMs());
-                            builder.field("total", r.getTotal());
-                            builder.field("num", r.getNum());
-                            final List<SuggestItem> suggestItems = r.getItems();
-                            if (suggestItems.size() > 0) {
-                                builder.startArray("hits");
-                                for (final SuggestItem item : suggestItems) {
-                                    builder.startObject();
-                                    builder.field("text", item.getText());
-                                    builder.array("tags", item.getTags());
-                                    builder.array("roles", item.getRoles());
-                                    builder.array("fields", item.getFields());
-                                    builder.endObject();
-                                }
-                                builder.endArray();
-                            }
-
-                            builder.endObject();
-                            channel.sendResponse(new BytesRestResponse(OK, builder));
-                        } catch (final IOException e) {
-                            sendErrorResponse(channel, e);
+                final Consumer<SuggestResponseCache.CachedResponse> success = coalescer != null ? r -> coalescer.complete(key, r)
+                    : listener::onResponse;
+                final Consumer<Throwable> error = coalescer != null ? t -> coalescer.fail(key, t) : listener::onFailure;
+
+                final Consumer<SuggestResponse> respond = r -> {
+                    try {
+                        if (sessionStore != null) {
+                            sessionStore.put(sessionId, index, sessionFilter, query, r.getItems(), r.getTotal());
                         }
-                    }).error(t ->
-                        sendErrorResponse(channel, t)
-                );
-            } catch (final SuggesterException e) {
-                sendErrorResponse(channel, e);
+                        // cached and shared with coalesced requests, so not written to the pooled channel buffer
+                        final XContentBuilder builder = newSharedBuilder(request);
+                        builder.startObject();
+                        buildSuggestResponse(builder, sessionStore != null ? truncate(r, size) : r, compact);
+                        builder.endObject();
+                        final SuggestResponseCache.CachedResponse content = new SuggestResponseCache.CachedResponse(
+                            builder.contentType().restContentType(), builder.bytes().toBytes());
+                        // a partial response is not kept for the following requests
+                        if (responseCache != null && !(r instanceof SuggestFanOut.MergedResponse
+                            && ((SuggestFanOut.MergedResponse) r).isPartial())) {
+                            responseCache.put(key, content);
+                        }
+                        success.accept(content);
+                    } catch (final IOException e) {
+                        error.accept(e);
+                    }
+                };
+
+                try {
+                    final Suggester suggester = fessSuggestService.suggester(index);
+                    final List<IndexMetaData> backingIndices = fanOut ? fessSuggestService.backingIndices(suggester)
+                        : Collections.emptyList();
+                    if (!backingIndices.isEmpty()) {
+                        fanOutRef.set(fessSuggestService.fanOut(index, suggester, backingIndices, query, size, split(tags),
+                            split(roles), split(fields), weight, respond, error));
+                        return;
+                    }
+                    final SuggestRequestBuilder suggestRequestBuilder = suggester.suggest();
+                    setupRequestBuilder(suggestRequestBuilder, query,
+                        sessionStore != null ? Math.max(size, sessionStore.getCandidateSize()) : size, tags, roles, fields, weight);
+                    suggestRequestBuilder.execute()
+                        .then(respond)
+                        .error(error::accept);
+                } catch (final RuntimeException e) {
+                    error.accept(e);
+                }
+            } catch (final SuggesterException | ElasticsearchParseException | IllegalArgumentException e) {
+                sendErrorResponse(channel, request.param(PARAM_INDEX), e);
             }
         });
     }
 
-    private void sendErrorResponse(final RestChannel channel, final Throwable t) {
+    private void sendTimedOut(final RestChannel channel, final String index, final SuggestResponseCache.Key key,
+            final long received, final long started) {
+        final long responded = System.nanoTime();
+        fessSuggestService.metrics().recordTimeout(SuggestMetrics.ENDPOINT_SUGGEST, index);
+        try {
+            final SuggestResponseCache responseCache = fessSuggestService.responseCache();
+            final SuggestResponseCache.CachedResponse cached = responseCache != null ? responseCache.get(key) : null;
+            if (cached != null) {
+                final Map<String, Object> content = XContentHelper.convertToMap(new BytesArray(cached.getContent()), true).v2();
+                content.put("timed_out", true);
+                final XContentBuilder builder = channel.newBuilder();
+                builder.map(content);
+                channel.sendResponse(new BytesRestResponse(OK, builder));
+            } else {
+                final XContentBuilder builder = channel.newBuilder();
+                builder.startObject();
+                builder.field("index", index);
+                builder.field("took", TimeUnit.NANOSECONDS.toMillis(responded - received));
+                builder.field("total", 0);
+                builder.field("num", 0);
+                builder.field("timed_out", true);
+                builder.endObject();
+                channel.sendResponse(new BytesRestResponse(OK, builder));
+            }
+            fessSuggestService.metrics().record(SuggestMetrics.ENDPOINT_SUGGEST, index, started - received,
+                responded - started, System.nanoTime() - responded);
+        } catch (final IOException e) {
+            sendErrorResponse(channel, index, e);
+        }
+    }
+
+    private void sendErrorResponse(final RestChannel channel, final String index, final Throwable t) {
+        fessSuggestService.metrics().recordError(SuggestMetrics.ENDPOINT_SUGGEST, index);
         try {
             if (logger.isDebugEnabled()) {
                 logger.debug("Failed to process the request.", t);
@@ -194,25 +314,142 @@ public class FessSuggestRestAction extends BaseRestHandler {
         }
     }
 
-    private boolean isBadQuery(final String query) {
-        return badQueries.contains(query);
+    static void setupRequestBuilder(final SuggestRequestBuilder suggestRequestBuilder, final String query, final int size,
+            final String tags, final String roles, final String fields, final float weight) {
+        suggestRequestBuilder.setSize(size);
+        if (!Strings.isNullOrEmpty(query)) {
+            suggestRequestBuilder.setQuery(query);
+        }
+        if (!Strings.isNullOrEmpty(tags)) {
+            final String[] tagsArray = tags.split(SEP_PARAM);
+            for (final String tag : tagsArray) {
+                suggestRequestBuilder.addTag(tag);
+            }
+        }
+        if (!Strings.isNullOrEmpty(roles)) {
+            final String[] rolesArray = roles.split(SEP_PARAM);
+            for (final String role : rolesArray) {
+                suggestRequestBuilder.addRole(role);
+            }
+        }
+        if (!Strings.isNullOrEmpty(fields)) {
+            final String[] fieldsArray = fields.split(SEP_PARAM);
+            for (final String field : fieldsArray) {
+                suggestRequestBuilder.addField(field);
+            }
+        }
+        if (weight > 0) {
+            suggestRequestBuilder.setPrefixMatchWeight(weight);
+        }
+    }
+
+    private void sendItems(final RestChannel channel, final String index, final String query, final List<SuggestItem> items,
+            final boolean compact, final long received, final long started) {
+        try {
+            final long responded = System.nanoTime();
+            final XContentBuilder builder = channel.newBuilder();
+            builder.startObject();
+            buildSuggestResponse(builder, new SuggestResponse(index, TimeUnit.NANOSECONDS.toMillis(responded - started),
+                Collections.singletonList(query), items.size(), items), compact);
+            builder.endObject();
+            channel.sendResponse(new BytesRestResponse(OK, builder));
+            fessSuggestService.metrics().record(SuggestMetrics.ENDPOINT_SUGGEST, index, started - received,
+                responded - started, System.nanoTime() - responded);
+        } catch (final IOException e) {
+            sendErrorResponse(channel, index, e);
+        }
+    }
+
+    private static String[] split(final String value) {
+        return Strings.isNullOrEmpty(value) ? null : value.split(SEP_PARAM);
+    }
+
+    private static boolean hasWhitespace(final String query) {
+        for (int i = 0; i < query.length(); i++) {
+            if (Character.isWhitespace(query.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SuggestResponse truncate(final SuggestResponse r, final int size) {
+        if (r.getItems().size() <= size) {
+            return r;
+        }
+        return new SuggestResponse(r.getIndex(), r.getTookMs(), r.getWords(), r.getTotal(), r.getItems().subList(0, size));
+    }
+
+    private List<String> getReadings(final Suggester suggester, final String query) {
+        try {
+            final String normalized = suggester.getNormalizer().normalize(query);
+            final List<String> readings = new ArrayList<>(suggester.getReadingConverter().convert(normalized));
+            readings.add(normalized);
+            return readings;
+        } catch (final IOException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to convert {} to readings.", e, query);
+            }
+            return null;
+        }
     }
 
-    private Set<String> getBadQuerySet(final Settings settings) {
-        final Set<String> badQueries = Collections.synchronizedSet(new HashSet<>());
-        final String value = settings.get(SETTINGS_NGWORD_KEY);
-        if(Strings.isNullOrEmpty(value)) {
-            return badQueries;
+    static void buildSuggestResponse(final XContentBuilder builder, final SuggestResponse r, final boolean compact) throws IOException {
+        builder.field("index", r.getIndex());
+        builder.field("took", r.getTookMs());
+        builder.field("total", r.getTotal());
+        builder.field("num", r.getNum());
+        if (r instanceof SuggestFanOut.MergedResponse && ((SuggestFanOut.MergedResponse) r).isPartial()) {
+            builder.field("partial", true);
+            builder.field("failed_indices", ((SuggestFanOut.MergedResponse) r).getFailedIndices());
+            if (((SuggestFanOut.MergedResponse) r).isTimedOut()) {
+                builder.field("timed_out", true);
+            }
         }
+        buildHits(builder, r.getItems(), compact);
+    }
 
-        final String[] values = value.split(",");
-        for(final String badQuery: values) {
-            if(badQuery.length() == 0) {
-                continue;
+    static void buildHits(final XContentBuilder builder, final List<SuggestItem> suggestItems, final boolean compact) throws IOException {
+        if (suggestItems.size() > 0) {
+            builder.startArray("hits");
+            for (final SuggestItem item : suggestItems) {
+                if (compact) {
+                    builder.value(item.getText());
+                    continue;
+                }
+                builder.startObject();
+                builder.field("text", item.getText());
+                builder.array("tags", item.getTags());
+                builder.array("roles", item.getRoles());
+                builder.array("fields", item.getFields());
+                builder.endObject();
             }
-            badQueries.add(badQuery);
+            builder.endArray();
         }
-        return badQueries;
+    }
+
+    /**
+     * Creates a builder with the output parameters of {@link RestChannel#newBuilder()}
+     * over a private buffer instead of the channel buffer, which is released when a response is sent.
+     */
+    static XContentBuilder newSharedBuilder(final RestRequest request) throws IOException {
+        XContentType contentType = XContentType.fromRestContentType(request.param("format", request.header("Content-Type")));
+        if (contentType == null) {
+            contentType = XContentType.JSON;
+        }
+        final String[] filters = request.hasParam("filter_path") ? request.paramAsStringArrayOrEmptyIfAll("filter_path") : null;
+        final XContentBuilder builder = new XContentBuilder(XContentFactory.xContent(contentType), new BytesStreamOutput(), filters);
+        if (request.paramAsBoolean("pretty", false)) {
+            builder.prettyPrint().lfAtEnd();
+        }
+        builder.humanReadable(request.paramAsBoolean("human", builder.humanReadable()));
+        return builder;
+    }
+
+    static String getOutputKey(final RestRequest request) {
+        return new StringBuilder().append(request.param("format", request.header("Content-Type"))).append('|')
+            .append(request.param("pretty")).append('|').append(request.param("human")).append('|')
+            .append(request.param("filter_path")).append('|').append(request.paramAsBoolean(PARAM_COMPACT, false)).toString();
     }
 
 }
@@ -0,0 +1,246 @@
+package org.codelibs.elasticsearch.rest;
+
+import static org.elasticsearch.rest.RestStatus.OK;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.cache.CacheStats;
+import org.codelibs.elasticsearch.FessSuggestPlugin;
+import org.codelibs.elasticsearch.action.FessSuggestNodeStats;
+import org.codelibs.elasticsearch.action.FessSuggestStatsAction;
+import org.codelibs.elasticsearch.action.FessSuggestStatsRequest;
+import org.codelibs.elasticsearch.action.FessSuggestStatsResponse;
+import org.codelibs.elasticsearch.service.CachingContentsParser;
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.codelibs.elasticsearch.service.PopularWordsSnapshot;
+import org.codelibs.elasticsearch.service.PrefixSuggestTier;
+import org.codelibs.elasticsearch.service.SuggestMetrics;
+import org.codelibs.elasticsearch.service.SuggestRequestCoalescer;
+import org.codelibs.elasticsearch.service.SuggestResponseCache;
+import org.codelibs.elasticsearch.service.SuggestSessionStore;
+import org.codelibs.elasticsearch.service.TrendingWords;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPoolStats;
+
+public class FessSuggestStatsRestAction extends BaseRestHandler {
+
+    private static final Set<String> THREAD_POOL_NAMES = new HashSet<>(Arrays.asList(
+        FessSuggestPlugin.THREAD_POOL_READ, FessSuggestPlugin.THREAD_POOL_WRITE, FessSuggestPlugin.THREAD_POOL_PWORDS));
+
+    protected final ThreadPool threadPool;
+
+    protected final FessSuggestService fessSuggestService;
+
+    @Inject
+    public FessSuggestStatsRestAction(final Settings settings, final Client client,
+                                      final RestController controller, final ThreadPool threadPool, final FessSuggestService fessSuggestService) {
+        super(settings, controller, client);
+
+        this.threadPool = threadPool;
+
+        this.fessSuggestService = fessSuggestService;
+
+        controller.registerHandler(RestRequest.Method.GET,
+            "/_fsuggest/_stats", this);
+    }
+
+    @Override
+    protected void handleRequest(final RestRequest request, final RestChannel channel, final Client client) {
+        if (request.paramAsBoolean("local", false)) {
+            sendResponse(request, channel, null);
+            return;
+        }
+        client.execute(FessSuggestStatsAction.INSTANCE, new FessSuggestStatsRequest(), new ActionListener<FessSuggestStatsResponse>() {
+            @Override
+            public void onResponse(final FessSuggestStatsResponse response) {
+                sendResponse(request, channel, response);
+            }
+
+            @Override
+            public void onFailure(final Throwable e) {
+                sendErrorResponse(channel, e);
+            }
+        });
+    }
+
+    private void sendResponse(final RestRequest request, final RestChannel channel, final FessSuggestStatsResponse response) {
+        try {
+            final XContentBuilder builder = JsonXContent.contentBuilder();
+            final String pretty = request.param("pretty");
+            if (pretty != null && !"false".equalsIgnoreCase(pretty)) {
+                builder.prettyPrint().lfAtEnd();
+            }
+            builder.startObject();
+            builder.field("suggesters", fessSuggestService.getSuggesterCount());
+            final SuggestResponseCache responseCache = fessSuggestService.responseCache();
+            builder.startObject("cache");
+            builder.field("enabled", responseCache != null);
+            if (responseCache != null) {
+                final CacheStats stats = responseCache.stats();
+                builder.field("size", responseCache.size());
+                builder.field("hit_count", stats.hitCount());
+                builder.field("miss_count", stats.missCount());
+                builder.field("eviction_count", stats.evictionCount());
+                builder.field("hit_rate", stats.hitRate());
+            }
+            builder.endObject();
+            final SuggestRequestCoalescer coalescer = fessSuggestService.coalescer();
+            builder.startObject("coalescing");
+            builder.field("enabled", coalescer != null);
+            if (coalescer != null) {
+                final long requestCount = coalescer.getRequestCount();
+                final long coalescedCount = coalescer.getCoalescedCount();
+                builder.field("in_flight", coalescer.getInFlightCount());
+                builder.field("request_count", requestCount);
+                builder.field("coalesced_count", coalescedCount);
+                builder.field("coalesced_rate", requestCount > 0 ? (double) coalescedCount / requestCount : 0d);
+            }
+            builder.endObject();
+            long analysisSize = 0;
+            long analysisHits = 0;
+            long analysisMisses = 0;
+            for (final CachingContentsParser contentsParser : fessSuggestService.contentsParsers()) {
+                final CacheStats stats = contentsParser.stats();
+                analysisSize += contentsParser.size();
+                analysisHits += stats.hitCount();
+                analysisMisses += stats.missCount();
+            }
+            builder.startObject("analysis_cache");
+            builder.field("size", analysisSize);
+            builder.field("hit_count", analysisHits);
+            builder.field("miss_count", analysisMisses);
+            builder.field("hit_rate", analysisHits + analysisMisses > 0 ? (double) analysisHits / (analysisHits + analysisMisses) : 0d);
+            builder.endObject();
+            builder.startObject("prefix_tier");
+            builder.field("enabled", fessSuggestService.isPrefixTierEnabled());
+            if (fessSuggestService.isPrefixTierEnabled()) {
+                final long hitCount = fessSuggestService.getPrefixTierHitCount();
+                final long missCount = fessSuggestService.getPrefixTierMissCount();
+                builder.field("hit_count", hitCount);
+                builder.field("miss_count", missCount);
+                builder.field("hit_rate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0d);
+                builder.startObject("indices");
+                for (final PrefixSuggestTier prefixTier : fessSuggestService.prefixTiers()) {
+                    builder.startObject(prefixTier.getIndex());
+                    builder.field("items", prefixTier.getItemCount());
+                    builder.field("keys", prefixTier.getKeyCount());
+                    builder.field("complete", prefixTier.isComplete());
+                    builder.field("memory_in_bytes", prefixTier.getMemorySize());
+                    builder.field("build_time_in_millis", prefixTier.getBuildTime());
+                    builder.field("timestamp", prefixTier.getTimestamp());
+                    builder.endObject();
+                }
+                builder.endObject();
+            }
+            builder.endObject();
+            final SuggestSessionStore sessionStore = fessSuggestService.sessionStore();
+            builder.startObject("sessions");
+            builder.field("enabled", sessionStore != null);
+            if (sessionStore != null) {
+                final long hitCount = sessionStore.getHitCount();
+                final long missCount = sessionStore.getMissCount();
+                builder.field("size", sessionStore.size());
+                builder.field("hit_count", hitCount);
+                builder.field("miss_count", missCount);
+                builder.field("hit_rate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0d);
+            }
+            builder.endObject();
+            builder.startObject("trending");
+            builder.field("enabled", fessSuggestService.isTrendingEnabled());
+            if (fessSuggestService.isTrendingEnabled()) {
+                builder.startObject("indices");
+                for (final Map.Entry<String, TrendingWords> entry : fessSuggestService.trendingWords().entrySet()) {
+                    builder.startObject(entry.getKey());
+                    builder.field("candidates", entry.getValue().getCandidateCount());
+                    builder.field("memory_in_bytes", entry.getValue().getMemorySize());
+                    builder.endObject();
+                }
+                builder.endObject();
+            }
+            builder.endObject();
+            builder.startObject("write_behind");
+            builder.field("enabled", fessSuggestService.isWriteBehind());
+            builder.field("buffer_size", fessSuggestService.getBufferSize());
+            builder.field("buffered_count", fessSuggestService.getBufferedCount());
+            builder.field("flushed_count", fessSuggestService.getFlushedCount());
+            builder.field("failed_count", fessSuggestService.getFailedCount());
+            builder.field("rejected_count", fessSuggestService.getRejectedCount());
+            builder.endObject();
+            builder.startArray("pwords_snapshots");
+            for (final PopularWordsSnapshot snapshot : fessSuggestService.popularWordsSnapshots()) {
+                builder.startObject();
+                builder.field("name", snapshot.getName());
+                builder.field("index", snapshot.getIndex());
+                builder.field("available", snapshot.getResponse() != null);
+                builder.field("timestamp", snapshot.getTimestamp());
+                builder.endObject();
+            }
+            builder.endArray();
+            builder.startObject("thread_pool");
+            for (final ThreadPoolStats.Stats stats : threadPool.stats()) {
+                if (THREAD_POOL_NAMES.contains(stats.getName())) {
+                    builder.startObject(stats.getName());
+                    builder.field("threads", stats.getThreads());
+                    builder.field("queue", stats.getQueue());
+                    builder.field("active", stats.getActive());
+                    builder.field("rejected", stats.getRejected());
+                    builder.field("completed", stats.getCompleted());
+                    builder.endObject();
+                }
+            }
+            builder.endObject();
+            builder.startObject("latency");
+            SuggestMetrics.toXContent(builder, fessSuggestService.metrics().snapshot());
+            builder.endObject();
+            if (response != null) {
+                builder.startObject("nodes");
+                for (final FessSuggestNodeStats nodeStats : response.getNodes()) {
+                    builder.startObject(nodeStats.getNode().getId());
+                    builder.field("name", nodeStats.getNode().getName());
+                    builder.startObject("latency");
+                    SuggestMetrics.toXContent(builder, nodeStats.getLatency());
+                    builder.endObject();
+                    builder.endObject();
+                }
+                builder.endObject();
+                builder.startObject("cluster");
+                builder.field("nodes", response.getNodes().length);
+                builder.field("failed_nodes", response.getFailedNodes());
+                builder.startObject("latency");
+                SuggestMetrics.toXContent(builder, response.getMergedLatency());
+                builder.endObject();
+                builder.endObject();
+            }
+            builder.endObject();
+            channel.sendResponse(new BytesRestResponse(OK, builder));
+        } catch (final IOException e) {
+            sendErrorResponse(channel, e);
+        }
+    }
+
+    private void sendErrorResponse(final RestChannel channel, final Throwable t) {
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to process the request.", t);
+            }
+            channel.sendResponse(new BytesRestResponse(channel, t));
+        } catch (final IOException e) {
+            logger.error("Failed to send a failure response.", e);
+        }
+    }
+}
@@ -3,18 +3,25 @@ package org.codelibs.elasticsearch.rest;
 import static org.elasticsearch.rest.RestStatus.OK;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
 
 import com.google.common.base.Strings;
 import org.codelibs.core.lang.StringUtil;
 import org.codelibs.elasticsearch.ElasticsearchFessSuggestException;
+import org.codelibs.elasticsearch.FessSuggestPlugin;
 import org.codelibs.elasticsearch.service.FessSuggestService;
-import org.codelibs.fess.suggest.Suggester;
+import org.codelibs.elasticsearch.service.SearchWord;
+import org.codelibs.elasticsearch.service.SuggestDocumentFields;
+import org.codelibs.elasticsearch.service.SuggestMetrics;
 import org.codelibs.fess.suggest.index.SuggestIndexResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.inject.Inject;
@@ -54,13 +61,13 @@ public class FessSuggestUpdateRestAction extends BaseRestHandler {
     @SuppressWarnings("unchecked")
     @Override
     protected void handleRequest(final RestRequest restRequest, final RestChannel restChannel, final Client client) throws Exception {
-        threadPool.executor(ThreadPool.Names.SUGGEST).execute(() -> {
+        final long received = System.nanoTime();
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_WRITE).execute(() -> {
+            final long started = System.nanoTime();
+            final String indexId = restRequest.param("index");
             try {
-                final String indexId = restRequest.param("index");
                 final String updateType = restRequest.param("update_type");
 
-                final Suggester suggester = Suggester.builder().build(client, indexId);
-
                 final String source = restRequest.content().toUtf8();
                 final Map<String, Object> requestMap = XContentFactory
                     .xContent(source)
@@ -100,40 +107,32 @@ public class FessSuggestUpdateRestAction extends BaseRestHandler {
                 }
 
 
-                final Consumer<SuggestIndexResponse> success = suggestIndexResponse -> {
-                        try {
-                            final XContentBuilder builder = JsonXContent.contentBuilder();
-                            final String pretty = restRequest.param("pretty");
-                            if (pretty != null && !"false".equalsIgnoreCase(pretty)) {
-                                builder.prettyPrint().lfAtEnd();
-                            }
-                            builder.startObject();
-                            builder.field("took", suggestIndexResponse.getTook());
-                            builder.field("acknowledged", true);
-                            builder.endObject();
-                            restChannel.sendResponse(new BytesRestResponse(OK, builder));
-                        } catch (Exception e) {
-                            sendErrorResponse(restChannel, e);
-                        }
-                    };
-
-                final Consumer<Throwable> error = t -> sendErrorResponse(restChannel, t);
+                final Consumer<SuggestIndexResponse> success = suggestIndexResponse ->
+                    sendAcknowledged(restRequest, restChannel, received, started, suggestIndexResponse.getTook(), false);
+
+                final Runnable buffered = () -> sendAcknowledged(restRequest, restChannel, received, started, 0, true);
+
+                final Consumer<Throwable> error = t -> sendErrorResponse(restChannel, indexId, t);
 
                 if(updateType.equals("searchword")) {
-                    updateFromSearchWord(suggester, fields, tags, roles, langs, requestMap, success, error);
+                    updateFromSearchWord(indexId, fields, tags, roles, langs, requestMap, success, buffered, error);
                 } else if (updateType.equals("document")) {
-                    updateFromDocument(suggester, fields, tags, roles, requestMap, success, error);
+                    updateFromDocument(indexId, fields, tags, roles, langs, requestMap, success, error);
+                } else if (updateType.equals("documents")) {
+                    updateFromDocuments(indexId, fields, tags, roles, langs, requestMap, (suggestIndexResponse, counts) ->
+                        sendAcknowledged(restRequest, restChannel, received, started, suggestIndexResponse.getTook(), false, counts), error);
                 } else {
                     throw new ElasticsearchFessSuggestException("Unexpected update type: " + updateType);
                 }
             } catch (final Throwable t) {
-                sendErrorResponse(restChannel, t);
+                sendErrorResponse(restChannel, indexId, t);
             }
         });
     }
 
-    private void updateFromSearchWord(final Suggester suggester, final String[] fields, final String[] tags, final String roles[], final String langs[],
-                                    final Map<String, Object> requestMap, final Consumer<SuggestIndexResponse> success, final Consumer<Throwable> error) {
+    private void updateFromSearchWord(final String indexId, final String[] fields, final String[] tags, final String roles[], final String langs[],
+                                    final Map<String, Object> requestMap, final Consumer<SuggestIndexResponse> success, final Runnable buffered,
+                                    final Consumer<Throwable> error) {
         final Object keyword = requestMap.getOrDefault("keyword", "");
         if (Strings.isNullOrEmpty(keyword.toString())) {
             error.accept(new ElasticsearchFessSuggestException("keyword is null."));
@@ -141,8 +140,15 @@ public class FessSuggestUpdateRestAction extends BaseRestHandler {
         }
 
         try {
-            final SuggestIndexResponse suggestIndexResponse = suggester.indexer()
+            if (fessSuggestService.isWriteBehind()) {
+                fessSuggestService.bufferSearchWord(indexId, new SearchWord(keyword.toString(), fields, tags, roles, langs, 1));
+                buffered.run();
+                return;
+            }
+
+            final SuggestIndexResponse suggestIndexResponse = fessSuggestService
                 .indexFromSearchWord(
+                    indexId,
                     keyword.toString(),
                     fields,
                     tags,
@@ -156,33 +162,120 @@ public class FessSuggestUpdateRestAction extends BaseRestHandler {
         }
     }
 
-    private void updateFromDocument(final Suggester suggester, final String[] fields, final String[] tags, final String roles[],
+    private void updateFromDocument(final String indexId, final String[] fields, final String[] tags, final String roles[], final String langs[],
                                       final Map<String, Object> requestMap, final Consumer<SuggestIndexResponse> success, final Consumer<Throwable> error) {
         final Object document = requestMap.get("document");
-        if (Strings.isNullOrEmpty(document.toString())) {
+        if (document == null || Strings.isNullOrEmpty(document.toString())) {
             error.accept(new ElasticsearchFessSuggestException("document is null."));
             return;
         }
+        if (fields.length == 0) {
+            error.accept(new ElasticsearchFessSuggestException("fields is empty."));
+            return;
+        }
 
         try {
-            final Map<String, Object> doc = new HashMap<>();
-            final String[] supportedFields = suggester.settings().array().get("supportedFields");
-            final List<String> supportedFieldList = Arrays.asList(supportedFields);
-            Stream.of(fields)
-                .filter(field -> !supportedFieldList.contains(field))
-                .forEach(field -> suggester.settings().array().add("supportedFields", field));
+            final Map<String, Object> doc = fessSuggestService.documentFields(indexId).newDocument(document, fields, tags, roles, langs);
+            final SuggestIndexResponse suggestIndexResponse = fessSuggestService.indexFromDocument(indexId, fields,
+                Collections.singletonList(doc));
+            success.accept(suggestIndexResponse);
+        } catch (Exception e) {
+            error.accept(e);
+        }
+    }
 
-            Stream.of(fields).forEach(field -> doc.put(field, document));
+    @SuppressWarnings("unchecked")
+    private void updateFromDocuments(final String indexId, final String[] fields, final String[] tags, final String roles[], final String langs[],
+                                     final Map<String, Object> requestMap, final BiConsumer<SuggestIndexResponse, Map<String, Object>> success,
+                                     final Consumer<Throwable> error) {
+        final Object documentsObj = requestMap.get("documents");
+        if (!(documentsObj instanceof List) || ((List<Object>) documentsObj).isEmpty()) {
+            error.accept(new ElasticsearchFessSuggestException("documents is empty."));
+            return;
+        }
 
-            //TODO tags, role and langs
-            final SuggestIndexResponse suggestIndexResponse = suggester.indexer().indexFromDocument(new Map[]{doc});
-            success.accept(suggestIndexResponse);
+        try {
+            final SuggestDocumentFields documentFields = fessSuggestService.documentFields(indexId);
+            final List<Map<String, Object>> docs = new ArrayList<>();
+            final Set<String> allFields = new LinkedHashSet<>();
+            int rejected = 0;
+            for (final Object documentObj : (List<Object>) documentsObj) {
+                if (!(documentObj instanceof Map)) {
+                    throw new ElasticsearchFessSuggestException("Unexpected document: " + documentObj);
+                }
+                final Map<String, Object> documentMap = (Map<String, Object>) documentObj;
+                final Object document = documentMap.get("document");
+                final String[] docFields = getAsArray(documentMap, "fields", fields);
+                // nothing to index without a content or a field
+                if (document == null || Strings.isNullOrEmpty(document.toString()) || docFields.length == 0) {
+                    rejected++;
+                    continue;
+                }
+                docs.add(documentFields.newDocument(document, docFields, getAsArray(documentMap, "tags", tags),
+                    getAsArray(documentMap, "roles", roles), getAsArray(documentMap, "langs", langs)));
+                allFields.addAll(Arrays.asList(docFields));
+            }
+            if (docs.isEmpty()) {
+                error.accept(new ElasticsearchFessSuggestException("documents is empty."));
+                return;
+            }
+
+            final SuggestIndexResponse suggestIndexResponse = fessSuggestService.indexFromDocument(indexId,
+                allFields.toArray(new String[allFields.size()]), docs);
+            final Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("accepted", docs.size());
+            counts.put("rejected", rejected);
+            success.accept(suggestIndexResponse, counts);
         } catch (Exception e) {
             error.accept(e);
         }
     }
 
-    private void sendErrorResponse(final RestChannel channel, final Throwable t) {
+    @SuppressWarnings("unchecked")
+    private static String[] getAsArray(final Map<String, Object> map, final String key, final String[] defaultValue) {
+        final Object value = map.get(key);
+        if (value instanceof List) {
+            return ((List<Object>) value).stream().map(Object::toString).toArray(n -> new String[n]);
+        } else if (value != null) {
+            return new String[] { value.toString() };
+        }
+        return defaultValue;
+    }
+
+    private void sendAcknowledged(final RestRequest restRequest, final RestChannel restChannel, final long received, final long started,
+                                  final long took, final boolean buffered) {
+        sendAcknowledged(restRequest, restChannel, received, started, took, buffered, Collections.emptyMap());
+    }
+
+    private void sendAcknowledged(final RestRequest restRequest, final RestChannel restChannel, final long received, final long started,
+                                  final long took, final boolean buffered, final Map<String, Object> counts) {
+        final long responded = System.nanoTime();
+        try {
+            final XContentBuilder builder = JsonXContent.contentBuilder();
+            final String pretty = restRequest.param("pretty");
+            if (pretty != null && !"false".equalsIgnoreCase(pretty)) {
+                builder.prettyPrint().lfAtEnd();
+            }
+            builder.startObject();
+            builder.field("took", took);
+            builder.field("acknowledged", true);
+            if (buffered) {
+                builder.field("buffered", true);
+            }
+            for (final Map.Entry<String, Object> count : counts.entrySet()) {
+                builder.field(count.getKey(), count.getValue());
+            }
+            builder.endObject();
+            restChannel.sendResponse(new BytesRestResponse(OK, builder));
+            fessSuggestService.metrics().record(SuggestMetrics.ENDPOINT_UPDATE, restRequest.param("index"), started - received,
+                responded - started, System.nanoTime() - responded);
+        } catch (Exception e) {
+            sendErrorResponse(restChannel, restRequest.param("index"), e);
+        }
+    }
+
+    private void sendErrorResponse(final RestChannel channel, final String index, final Throwable t) {
+        fessSuggestService.metrics().recordError(SuggestMetrics.ENDPOINT_UPDATE, index);
         try {
             if (logger.isDebugEnabled()) {
                 logger.debug("Failed to process the request.", t);
@@ -1,16 +1,19 @@
 package org.codelibs.elasticsearch.rest;
 
 import com.google.common.base.Strings;
+import org.codelibs.elasticsearch.FessSuggestPlugin;
 import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.codelibs.elasticsearch.service.PopularWordsSnapshot;
+import org.codelibs.elasticsearch.service.SuggestMetrics;
 import org.codelibs.fess.suggest.Suggester;
 import org.codelibs.fess.suggest.entity.SuggestItem;
 import org.codelibs.fess.suggest.exception.SuggesterException;
 import org.codelibs.fess.suggest.request.popularwords.PopularWordsRequestBuilder;
+import org.codelibs.fess.suggest.request.popularwords.PopularWordsResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
-import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.rest.*;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -34,8 +37,8 @@ public class PopularWordsRestAction extends BaseRestHandler {
     public static final String PARAM_EXCLUDES = "excludes";
     public static final String PARAM_QUERY_FREQ = "query_freq";
 
-    public static final String SETTINGS_EXCLUDE_WORDS = "fsuggest.pwords.excludes";
-    public static final String SETTINGS_WINDOW_SIZE = "fsuggest.pwords.window_size";
+    public static final String SETTINGS_EXCLUDE_WORDS = FessSuggestService.SETTINGS_PWORDS_EXCLUDE_WORDS;
+    public static final String SETTINGS_WINDOW_SIZE = FessSuggestService.SETTINGS_PWORDS_WINDOW_SIZE;
 
     private static final String SEP_PARAM = ",";
 
@@ -68,7 +71,9 @@ public class PopularWordsRestAction extends BaseRestHandler {
     @Override
     protected void handleRequest(final RestRequest request,
                                  final RestChannel channel, final Client client) {
-        threadPool.executor(ThreadPool.Names.SUGGEST).execute(() -> {
+        final long received = System.nanoTime();
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_PWORDS).execute(() -> {
+            final long started = System.nanoTime();
             try {
                 final String index = request.param(PARAM_INDEX);
                 final int size = request.paramAsInt(PARAM_SIZE, 10);
@@ -80,6 +85,17 @@ public class PopularWordsRestAction extends BaseRestHandler {
                 final String excludes = request.param(PARAM_EXCLUDES);
                 final int queryFreqThreshold = request.paramAsInt(PARAM_QUERY_FREQ, 10);
 
+                if (Strings.isNullOrEmpty(seed) && Strings.isNullOrEmpty(excludes)) {
+                    final PopularWordsSnapshot snapshot = fessSuggestService.popularWordsSnapshot(index, tags, roles, fields, size,
+                        windowSize, queryFreqThreshold);
+                    if (snapshot != null) {
+                        final PopularWordsResponse r = snapshot.getResponse();
+                        final List<SuggestItem> items = r.getItems();
+                        sendResponse(request, channel, received, started, r.getIndex(), 0, r.getTotal(), items.subList(0, Math.min(size, items.size())));
+                        return;
+                    }
+                }
+
                 final Suggester suggester = fessSuggestService.suggester(index);
                 final PopularWordsRequestBuilder popularWordsRequestBuilder = suggester.popularWords().setSize(size).setWindowSize(windowSize);
                 if (!Strings.isNullOrEmpty(tags)) {
@@ -97,7 +113,7 @@ public class PopularWordsRestAction extends BaseRestHandler {
                 if (!Strings.isNullOrEmpty(fields)) {
                     final String[] fieldsArray = fields.split(SEP_PARAM);
                     for (final String field : fieldsArray) {
-                        popularWordsRequestBuilder.addRole(field);
+                        popularWordsRequestBuilder.addField(field);
                     }
                 }
                 if (!Strings.isNullOrEmpty(seed)) {
@@ -117,47 +133,39 @@ public class PopularWordsRestAction extends BaseRestHandler {
                 popularWordsRequestBuilder.setQueryFreqThreshold(queryFreqThreshold);
 
                 popularWordsRequestBuilder.execute()
-                    .then(r -> {
-                        try {
-                            final XContentBuilder builder = JsonXContent.contentBuilder();
-                            final String pretty = request.param("pretty");
-                            if (pretty != null && !"false".equalsIgnoreCase(pretty)) {
-                                builder.prettyPrint().lfAtEnd();
-                            }
-                            builder.startObject();
-                            builder.field("index", r.getIndex());
-                            builder.field("took", r.getTookMs());
-                            builder.field("total", r.getTotal());
-                            builder.field("num", r.getNum());
-                            final List<SuggestItem> suggestItems = r.getItems();
-                            if (suggestItems.size() > 0) {
-                                builder.startArray("hits");
-                                for (final SuggestItem item : suggestItems) {
-                                    builder.startObject();
-                                    builder.field("text", item.getText());
-                                    builder.array("tags", item.getTags());
-                                    builder.array("roles", item.getRoles());
-                                    builder.array("fields", item.getFields());
-                                    builder.endObject();
-                                }
-                                builder.endArray();
-                            }
-
-                            builder.endObject();
-                            channel.sendResponse(new BytesRestResponse(OK, builder));
-                        } catch (final IOException e) {
-                            sendErrorResponse(channel, e);
-                        }
-                    }).error(t ->
-                        sendErrorResponse(channel, t)
+                    .then(r -> sendResponse(request, channel, received, started, r.getIndex(), r.getTookMs(), r.getTotal(), r.getItems()))
+                    .error(t ->
+                        sendErrorResponse(request, channel, t)
                 );
             } catch (final SuggesterException e) {
-                sendErrorResponse(channel, e);
+                sendErrorResponse(request, channel, e);
             }
         });
     }
 
-    private void sendErrorResponse(final RestChannel channel, final Throwable t) {
+    private void sendResponse(final RestRequest request, final RestChannel channel, final long received, final long started,
+                              final String index, final long took, final long total, final List<SuggestItem> suggestItems) {
+        final long responded = System.nanoTime();
+        try {
+            final XContentBuilder builder = channel.newBuilder();
+            builder.startObject();
+            builder.field("index", index);
+            builder.field("took", took);
+            builder.field("total", total);
+            builder.field("num", suggestItems.size());
+            FessSuggestRestAction.buildHits(builder, suggestItems, request.paramAsBoolean(FessSuggestRestAction.PARAM_COMPACT, false));
+
+            builder.endObject();
+            channel.sendResponse(new BytesRestResponse(OK, builder));
+            fessSuggestService.metrics().record(SuggestMetrics.ENDPOINT_PWORDS, request.param(PARAM_INDEX), started - received,
+                responded - started, System.nanoTime() - responded);
+        } catch (final IOException e) {
+            sendErrorResponse(request, channel, e);
+        }
+    }
+
+    private void sendErrorResponse(final RestRequest request, final RestChannel channel, final Throwable t) {
+        fessSuggestService.metrics().recordError(SuggestMetrics.ENDPOINT_PWORDS, request.param(PARAM_INDEX));
         try {
             if (logger.isDebugEnabled()) {
                 logger.debug("Failed to process the request.", t);
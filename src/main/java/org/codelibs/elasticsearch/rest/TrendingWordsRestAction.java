@@ -0,0 +1,93 @@
+package org.codelibs.elasticsearch.rest;
+
+import org.codelibs.elasticsearch.FessSuggestPlugin;
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.codelibs.elasticsearch.service.TrendingWords;
+import org.codelibs.fess.suggest.exception.SuggesterException;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.*;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.elasticsearch.rest.RestStatus.OK;
+
+public class TrendingWordsRestAction extends BaseRestHandler {
+
+    public static final String PARAM_INDEX = "index";
+    public static final String PARAM_WINDOW = "window";
+    public static final String PARAM_SIZE = "size";
+
+    protected final ThreadPool threadPool;
+
+    protected final FessSuggestService fessSuggestService;
+
+    @Inject
+    public TrendingWordsRestAction(final Settings settings, final Client client,
+                                   final RestController controller, final ThreadPool threadPool, final FessSuggestService fessSuggestService) {
+        super(settings, controller, client);
+
+        this.threadPool = threadPool;
+
+        this.fessSuggestService = fessSuggestService;
+
+        controller.registerHandler(RestRequest.Method.GET,
+            "/{index}/_fsuggest/trending", this);
+        controller.registerHandler(RestRequest.Method.GET,
+            "/{index}/{type}/_fsuggest/trending", this);
+    }
+
+    @Override
+    protected void handleRequest(final RestRequest request,
+                                 final RestChannel channel, final Client client) {
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_PWORDS).execute(() -> {
+            try {
+                if (!fessSuggestService.isTrendingEnabled()) {
+                    throw new SuggesterException("Trending words are disabled.");
+                }
+                final long startTime = System.currentTimeMillis();
+                final String index = request.param(PARAM_INDEX);
+                final TimeValue window = request.paramAsTime(PARAM_WINDOW, TimeValue.timeValueMinutes(10));
+                final int size = request.paramAsInt(PARAM_SIZE, 10);
+                final List<TrendingWords.Trend> trends = fessSuggestService.trending(index, window, size);
+
+                final XContentBuilder builder = channel.newBuilder();
+                builder.startObject();
+                builder.field("index", index);
+                builder.field("took", System.currentTimeMillis() - startTime);
+                builder.field("window", window.toString());
+                builder.field("num", trends.size());
+                builder.startArray("hits");
+                for (final TrendingWords.Trend trend : trends) {
+                    builder.startObject();
+                    builder.field("text", trend.getWord());
+                    builder.field("count", trend.getCount());
+                    builder.field("baseline", trend.getBaseline());
+                    builder.field("score", trend.getScore());
+                    builder.endObject();
+                }
+                builder.endArray();
+                builder.endObject();
+                channel.sendResponse(new BytesRestResponse(OK, builder));
+            } catch (final Exception e) {
+                sendErrorResponse(channel, e);
+            }
+        });
+    }
+
+    private void sendErrorResponse(final RestChannel channel, final Throwable t) {
+        try {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to process the request.", t);
+            }
+            channel.sendResponse(new BytesRestResponse(channel, t));
+        } catch (final IOException e) {
+            logger.error("Failed to send a failure response.", e);
+        }
+    }
+}
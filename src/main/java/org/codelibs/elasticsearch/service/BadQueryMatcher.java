@@ -0,0 +1,142 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.google.common.base.Strings;
+
+/**
+ * Immutable matcher for NG queries.
+ * A rule "word" matches the query exactly, "word*" matches queries starting
+ * with the word and "*word*" matches queries containing the word.
+ */
+public class BadQueryMatcher {
+    public static final BadQueryMatcher EMPTY = new BadQueryMatcher(new String[0]);
+
+    private static final char WILDCARD = '*';
+
+    protected final Set<String> exactWords;
+
+    protected final Node prefixRoot;
+
+    protected final Node substringRoot;
+
+    protected final int size;
+
+    public BadQueryMatcher(final String[] rules) {
+        final Set<String> exact = new HashSet<>();
+        final Builder prefix = new Builder();
+        final Builder substring = new Builder();
+        int count = 0;
+        for (final String rule : rules) {
+            if (Strings.isNullOrEmpty(rule)) {
+                continue;
+            }
+            final int length = rule.length();
+            if (length > 2 && rule.charAt(0) == WILDCARD && rule.charAt(length - 1) == WILDCARD) {
+                substring.add(rule.substring(1, length - 1));
+            } else if (length > 1 && rule.charAt(length - 1) == WILDCARD) {
+                prefix.add(rule.substring(0, length - 1));
+            } else {
+                exact.add(rule);
+            }
+            count++;
+        }
+        this.exactWords = exact;
+        this.prefixRoot = prefix.build();
+        this.substringRoot = substring.build();
+        this.size = count;
+    }
+
+    public boolean matches(final String query) {
+        if (Strings.isNullOrEmpty(query)) {
+            return false;
+        }
+        if (exactWords.contains(query)) {
+            return true;
+        }
+        if (prefixRoot != null && prefixRoot.matchesFrom(query, 0)) {
+            return true;
+        }
+        if (substringRoot != null) {
+            for (int i = 0; i < query.length(); i++) {
+                if (substringRoot.matchesFrom(query, i)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    protected static class Node {
+        protected final char[] keys;
+
+        protected final Node[] children;
+
+        protected final boolean terminal;
+
+        protected Node(final char[] keys, final Node[] children, final boolean terminal) {
+            this.keys = keys;
+            this.children = children;
+            this.terminal = terminal;
+        }
+
+        protected boolean matchesFrom(final String query, final int start) {
+            Node node = this;
+            for (int i = start; i < query.length(); i++) {
+                final int pos = Arrays.binarySearch(node.keys, query.charAt(i));
+                if (pos < 0) {
+                    return false;
+                }
+                node = node.children[pos];
+                if (node.terminal) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    protected static class Builder {
+        protected final Map<Character, Builder> children = new TreeMap<>();
+
+        protected boolean terminal = false;
+
+        protected boolean empty = true;
+
+        protected void add(final String word) {
+            Builder builder = this;
+            for (int i = 0; i < word.length(); i++) {
+                builder = builder.children.computeIfAbsent(word.charAt(i), c -> new Builder());
+            }
+            builder.terminal = true;
+            empty = false;
+        }
+
+        protected Node build() {
+            if (empty) {
+                return null;
+            }
+            return compile();
+        }
+
+        private Node compile() {
+            final char[] keys = new char[children.size()];
+            final Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (final Map.Entry<Character, Builder> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().compile();
+                i++;
+            }
+            return new Node(keys, nodes, terminal);
+        }
+    }
+}
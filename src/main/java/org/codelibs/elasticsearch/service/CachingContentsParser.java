@@ -0,0 +1,118 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.codelibs.fess.suggest.analysis.SuggestAnalyzer;
+import org.codelibs.fess.suggest.converter.ReadingConverter;
+import org.codelibs.fess.suggest.entity.SuggestItem;
+import org.codelibs.fess.suggest.exception.SuggesterException;
+import org.codelibs.fess.suggest.index.contents.DefaultContentsParser;
+import org.codelibs.fess.suggest.normalizer.Normalizer;
+
+/**
+ * Contents parser that memoizes the analysis of search words (exclusion,
+ * normalization and readings) by word and languages.
+ * An instance is bound to the analyzer and converter of one indexer.
+ */
+public class CachingContentsParser extends DefaultContentsParser {
+    private static final char SEP = '\u0000';
+
+    protected final Cache<String, Analysis> cache;
+
+    public CachingContentsParser(final long maxSize) {
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .recordStats()
+            .build();
+    }
+
+    @Override
+    public SuggestItem parseSearchWords(final String[] words, final String[][] readings, final String[] fields, final String[] tags,
+            final String[] roles, final long score, final ReadingConverter readingConverter, final Normalizer normalizer,
+            final SuggestAnalyzer analyzer, final String[] langs) {
+        try {
+            final List<String> keywords = new ArrayList<>(words.length);
+            final List<String[]> keywordReadings = new ArrayList<>(words.length);
+            for (int i = 0; i < words.length; i++) {
+                final Analysis analysis = analyze(words[i], langs, readingConverter, normalizer, analyzer);
+                if (analysis.excluded()) {
+                    continue;
+                }
+                final List<String> l = new ArrayList<>(analysis.readings);
+                if (readings != null && readings.length > i && readings[i].length > 0) {
+                    for (final String reading : readings[i]) {
+                        if (!l.contains(reading)) {
+                            l.add(reading);
+                        }
+                    }
+                }
+                keywords.add(analysis.normalized);
+                keywordReadings.add(l.toArray(new String[l.size()]));
+            }
+            if (keywords.isEmpty()) {
+                return null;
+            }
+            return new SuggestItem(keywords.toArray(new String[keywords.size()]),
+                keywordReadings.toArray(new String[keywordReadings.size()][]), fields, score, -1, tags, roles, langs,
+                SuggestItem.Kind.QUERY);
+        } catch (final Exception e) {
+            throw new SuggesterException("Failed to SuggestItem from search words.", e);
+        }
+    }
+
+    protected Analysis analyze(final String word, final String[] langs, final ReadingConverter readingConverter,
+            final Normalizer normalizer, final SuggestAnalyzer analyzer) throws Exception {
+        final String key = key(word, langs);
+        Analysis analysis = cache.getIfPresent(key);
+        if (analysis == null) {
+            if (isExcludeSearchword(word, langs, analyzer)) {
+                analysis = Analysis.EXCLUDED;
+            } else {
+                final String normalized = normalizer.normalize(word, langs);
+                analysis = new Analysis(normalized, readingConverter.convert(normalized, langs));
+            }
+            cache.put(key, analysis);
+        }
+        return analysis;
+    }
+
+    private static String key(final String word, final String[] langs) {
+        final StringBuilder buf = new StringBuilder(word.length() + 16).append(word).append(SEP);
+        if (langs != null) {
+            for (final String lang : langs) {
+                buf.append(lang).append(',');
+            }
+        }
+        return buf.toString();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    protected static class Analysis {
+        protected static final Analysis EXCLUDED = new Analysis(null, Collections.emptyList());
+
+        protected final String normalized;
+
+        protected final List<String> readings;
+
+        protected Analysis(final String normalized, final List<String> readings) {
+            this.normalized = normalized;
+            this.readings = Collections.unmodifiableList(new ArrayList<>(readings));
+        }
+
+        protected boolean excluded() {
+            return normalized == null;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Strings;
+import org.codelibs.fess.suggest.index.SuggestIndexResponse;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Scrolls a source index and feeds its documents to the suggest indexer in batches.
+ */
+public class DocumentIndexJob implements Runnable {
+    private static final ESLogger logger = Loggers.getLogger(DocumentIndexJob.class);
+
+    public enum Status {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    protected final FessSuggestService fessSuggestService;
+    protected final Client client;
+    protected final String index;
+    protected final String sourceIndex;
+    protected final String sourceType;
+    protected final String[] fields;
+    protected final int batchSize;
+    protected final TimeValue scroll;
+
+    protected volatile Status status = Status.RUNNING;
+    protected volatile boolean cancelled = false;
+    protected volatile long total = 0;
+    protected volatile long processed = 0;
+    protected volatile long suggestDocs = 0;
+    protected volatile long errors = 0;
+    protected volatile String failure;
+    protected final long startTime = System.currentTimeMillis();
+    protected volatile long endTime = 0;
+
+    public DocumentIndexJob(final FessSuggestService fessSuggestService, final Client client, final String index,
+            final String sourceIndex, final String sourceType, final String[] fields, final int batchSize, final TimeValue scroll) {
+        this.fessSuggestService = fessSuggestService;
+        this.client = client;
+        this.index = index;
+        this.sourceIndex = sourceIndex;
+        this.sourceType = sourceType;
+        this.fields = fields;
+        this.batchSize = batchSize;
+        this.scroll = scroll;
+    }
+
+    @Override
+    public void run() {
+        String scrollId = null;
+        try {
+            final SearchRequestBuilder builder = client.prepareSearch(sourceIndex).setScroll(scroll).setSize(batchSize)
+                .setFetchSource(fields, null).addSort("_doc", SortOrder.ASC);
+            if (!Strings.isNullOrEmpty(sourceType)) {
+                builder.setTypes(sourceType);
+            }
+            SearchResponse response = builder.execute().actionGet();
+            total = response.getHits().getTotalHits();
+            while (!cancelled) {
+                scrollId = response.getScrollId();
+                final SearchHit[] hits = response.getHits().getHits();
+                if (hits.length == 0) {
+                    break;
+                }
+                final List<Map<String, Object>> documents = new ArrayList<>(hits.length);
+                for (final SearchHit hit : hits) {
+                    final Map<String, Object> source = hit.getSource();
+                    final Map<String, Object> document = new HashMap<>();
+                    if (source != null) {
+                        for (final String field : fields) {
+                            final Object value = source.get(field);
+                            if (value != null) {
+                                document.put(field, value);
+                            }
+                        }
+                    }
+                    documents.add(document);
+                }
+                final SuggestIndexResponse indexResponse = fessSuggestService.indexFromDocument(index, fields, documents);
+                suggestDocs += indexResponse.getNumberOfSuggestDocs();
+                if (indexResponse.hasError()) {
+                    errors += indexResponse.getErrors().size();
+                    logger.warn("Failed to index suggest data from {}.", indexResponse.getErrors().get(0), sourceIndex);
+                }
+                processed += hits.length;
+                response = client.prepareSearchScroll(scrollId).setScroll(scroll).execute().actionGet();
+            }
+            status = cancelled ? Status.CANCELLED : Status.COMPLETED;
+        } catch (final Exception e) {
+            logger.warn("Failed to index suggest data from {}.", e, sourceIndex);
+            failure = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            status = Status.FAILED;
+        } finally {
+            endTime = System.currentTimeMillis();
+            if (scrollId != null) {
+                try {
+                    client.prepareClearScroll().addScrollId(scrollId).execute();
+                } catch (final Exception e) {
+                    logger.debug("Failed to clear scroll.", e);
+                }
+            }
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isRunning() {
+        return status == Status.RUNNING;
+    }
+
+    public double getDocsPerSecond() {
+        final long elapsed = getElapsed();
+        return elapsed > 0 ? processed * 1000d / elapsed : 0d;
+    }
+
+    public long getElapsed() {
+        return (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getSourceIndex() {
+        return sourceIndex;
+    }
+
+    public String getSourceType() {
+        return sourceType;
+    }
+
+    public String[] getFields() {
+        return fields;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getSuggestDocs() {
+        return suggestDocs;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+}
@@ -0,0 +1,74 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.codelibs.fess.suggest.analysis.SuggestAnalyzer;
+import org.codelibs.fess.suggest.converter.ReadingConverter;
+import org.codelibs.fess.suggest.entity.SuggestItem;
+import org.codelibs.fess.suggest.exception.SuggestIndexException;
+import org.codelibs.fess.suggest.index.SuggestIndexResponse;
+import org.codelibs.fess.suggest.index.SuggestIndexer;
+import org.codelibs.fess.suggest.normalizer.Normalizer;
+import org.codelibs.fess.suggest.settings.SuggestSettings;
+import org.elasticsearch.client.Client;
+
+public class FessSuggestIndexer extends SuggestIndexer {
+
+    public FessSuggestIndexer(final Client client, final String index, final String type, final ReadingConverter readingConverter,
+            final Normalizer normalizer, final SuggestAnalyzer analyzer, final SuggestSettings settings, final ExecutorService threadPool) {
+        super(client, index, type, readingConverter, normalizer, analyzer, settings, threadPool);
+    }
+
+    /**
+     * Parses the search words with the contents parser of this indexer and
+     * writes the resulting suggest items with one bulk request.
+     */
+    public SuggestIndexResponse indexFromSearchWords(final List<SearchWord> searchWords) {
+        final long start = System.currentTimeMillis();
+        try {
+            final List<SuggestItem> items = new ArrayList<>(searchWords.size());
+            for (final SearchWord searchWord : searchWords) {
+                final SuggestItem item = contentsParser.parseSearchWords(splitWords(searchWord.getKeyword()), null,
+                    searchWord.getFields(), searchWord.getTags(), searchWord.getRoles(), searchWord.getFreq(), readingConverter,
+                    normalizer, analyzer, searchWord.getLangs());
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+            if (items.isEmpty()) {
+                return new BatchIndexResponse(0, searchWords.size(), null, System.currentTimeMillis() - start);
+            }
+            final SuggestIndexResponse response = index(items.toArray(new SuggestItem[items.size()]));
+            return new BatchIndexResponse(items.size(), searchWords.size(), response.getErrors(),
+                System.currentTimeMillis() - start);
+        } catch (final Exception e) {
+            throw new SuggestIndexException("Failed to index from search words", e);
+        }
+    }
+
+    /**
+     * Splits a search word the same way as {@link #indexFromSearchWord}.
+     */
+    protected static String[] splitWords(final String searchWord) {
+        final StringBuilder buf = new StringBuilder(searchWord.length());
+        char prev = 0;
+        for (final char c : searchWord.toCharArray()) {
+            if (!Character.isWhitespace(c)) {
+                buf.append(c);
+            } else if (!Character.isWhitespace(prev)) {
+                buf.append(' ');
+            }
+            prev = c;
+        }
+        return buf.toString().trim().split(" ");
+    }
+
+    protected static class BatchIndexResponse extends SuggestIndexResponse {
+        protected BatchIndexResponse(final int numberOfSuggestDocs, final int numberOfInputDocs, final List<Throwable> errors,
+                final long took) {
+            super(numberOfSuggestDocs, numberOfInputDocs, errors, took);
+        }
+    }
+}
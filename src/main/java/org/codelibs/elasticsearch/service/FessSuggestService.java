@@ -1,56 +1,1267 @@
 package org.codelibs.elasticsearch.service;
 
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import org.codelibs.elasticsearch.FessSuggestPlugin;
 import org.codelibs.fess.suggest.Suggester;
+import org.codelibs.fess.suggest.constants.FieldNames;
+import org.codelibs.fess.suggest.entity.SuggestItem;
+import org.codelibs.fess.suggest.index.SuggestIndexResponse;
+import org.codelibs.fess.suggest.index.SuggestIndexer;
+import org.codelibs.fess.suggest.request.popularwords.PopularWordsRequestBuilder;
+import org.codelibs.fess.suggest.request.suggest.SuggestResponse;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.cluster.metadata.AliasOrIndex;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.component.LifecycleListener;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.search.function.CombineFunction;
+import org.elasticsearch.common.lucene.search.function.FieldValueFactorFunction;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.gateway.GatewayService;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
+import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.elasticsearch.indices.cluster.IndicesClusterStateService;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class FessSuggestService extends AbstractLifecycleComponent<FessSuggestService> implements ClusterStateListener,
+        NodeSettingsService.Listener {
+    public static final String INDEX_PREFIX_MATCH_WEIGHT = "index.suggest.prefix_match_weight";
+    public static final String INDEX_SUGGEST_TIMEOUT = "index.suggest.timeout";
+    public static final String INDEX_SUGGEST_BOOST = "index.suggest.boost";
+    public static final String INDEX_REFRESH_INTERVAL = "index.refresh_interval";
+
+    private static final TimeValue DEFAULT_REFRESH_INTERVAL = TimeValue.timeValueSeconds(1);
+
+    private static final TimeValue WRITE_BUFFER_FLUSH_TIMEOUT = TimeValue.timeValueSeconds(30);
+
+    public static final String CACHE_SNAPSHOT_FILE = "fsuggest_cache.snapshot";
+
+    public static final String SETTINGS_NGWORD_KEY = "fsuggest.ngquery";
+
+    public static final String SETTINGS_CACHE_ENABLED = "fsuggest.cache.enabled";
+    public static final String SETTINGS_CACHE_SIZE = "fsuggest.cache.size";
+    public static final String SETTINGS_CACHE_EXPIRE = "fsuggest.cache.expire";
+    public static final String SETTINGS_CACHE_SNAPSHOT_ENABLED = "fsuggest.cache.snapshot.enabled";
+    public static final String SETTINGS_CACHE_SNAPSHOT_SIZE = "fsuggest.cache.snapshot.size";
+    public static final String SETTINGS_CACHE_SNAPSHOT_INTERVAL = "fsuggest.cache.snapshot.interval";
+    public static final String SETTINGS_CACHE_SNAPSHOT_MAX_AGE = "fsuggest.cache.snapshot.max_age";
+    public static final String SETTINGS_COALESCE_ENABLED = "fsuggest.coalesce.enabled";
+    public static final String SETTINGS_ANALYSIS_CACHE_SIZE = "fsuggest.analysis_cache.size";
+    public static final String SETTINGS_PREFIX_TIER_ENABLED = "fsuggest.prefix_tier.enabled";
+    public static final String SETTINGS_PREFIX_TIER_SIZE = "fsuggest.prefix_tier.size";
+    public static final String SETTINGS_PREFIX_TIER_INTERVAL = "fsuggest.prefix_tier.interval";
+    public static final String SETTINGS_FANOUT_ENABLED = "fsuggest.fanout.enabled";
+    public static final String SETTINGS_SESSION_ENABLED = "fsuggest.session.enabled";
+    public static final String SETTINGS_SESSION_CANDIDATES = "fsuggest.session.candidates";
+    public static final String SETTINGS_SESSION_MAX_CANDIDATES = "fsuggest.session.max_candidates";
+    public static final String SETTINGS_SESSION_EXPIRE = "fsuggest.session.expire";
+    public static final String SETTINGS_SUGGEST_TIMEOUT = "fsuggest.suggest.timeout";
+    public static final String SETTINGS_TRENDING_ENABLED = "fsuggest.trending.enabled";
+    public static final String SETTINGS_TRENDING_BUCKET = "fsuggest.trending.bucket";
+    public static final String SETTINGS_TRENDING_BUCKETS = "fsuggest.trending.buckets";
+    public static final String SETTINGS_TRENDING_DEPTH = "fsuggest.trending.depth";
+    public static final String SETTINGS_TRENDING_WIDTH = "fsuggest.trending.width";
+    public static final String SETTINGS_TRENDING_CANDIDATES = "fsuggest.trending.candidates";
+    public static final String SETTINGS_WRITE_BEHIND_ENABLED = "fsuggest.update.write_behind.enabled";
+    public static final String SETTINGS_WRITE_BEHIND_CAPACITY = "fsuggest.update.write_behind.capacity";
+    public static final String SETTINGS_WRITE_BEHIND_FLUSH_SIZE = "fsuggest.update.write_behind.flush_size";
+    public static final String SETTINGS_WRITE_BEHIND_FLUSH_INTERVAL = "fsuggest.update.write_behind.flush_interval";
+    public static final String SETTINGS_PWORDS_EXCLUDE_WORDS = "fsuggest.pwords.excludes";
+    public static final String SETTINGS_PWORDS_WINDOW_SIZE = "fsuggest.pwords.window_size";
+    public static final String SETTINGS_PWORDS_SNAPSHOTS = "fsuggest.pwords.snapshots";
+    public static final String SETTINGS_PWORDS_SNAPSHOT_INTERVAL = "fsuggest.pwords.snapshot.interval";
+    public static final String SETTINGS_FROM_INDEX_BATCH_SIZE = "fsuggest.update.from_index.batch_size";
+    public static final String SETTINGS_FROM_INDEX_SCROLL = "fsuggest.update.from_index.scroll";
+    public static final String SETTINGS_FROM_INDEX_KEEP_ALIVE = "fsuggest.update.from_index.keep_alive";
+    public static final String SETTINGS_SUGGESTER_IDLE_TIMEOUT = "fsuggest.suggester.idle_timeout";
+    public static final String SETTINGS_SUGGESTER_EVICTION_INTERVAL = "fsuggest.suggester.eviction_interval";
+    public static final String SETTINGS_SUGGESTER_WARMUP = "fsuggest.suggester.warmup";
+    public static final String SETTINGS_METRICS_MAX_INDICES = "fsuggest.metrics.max_indices";
 
-public class FessSuggestService extends AbstractLifecycleComponent<FessSuggestService> {
     protected Client client;
-    protected Map<String, Suggester> suggesters = new ConcurrentHashMap<>();
+    protected ThreadPool threadPool;
+    protected ClusterService clusterService;
+    protected NodeSettingsService nodeSettingsService;
+    protected NodeEnvironment nodeEnv;
+    protected final String clusterName;
+    protected Map<String, FessSuggester> suggesters = new ConcurrentHashMap<>();
+    protected Map<String, FessSuggestIndexer> indexers = new ConcurrentHashMap<>();
+    protected Map<String, CachingContentsParser> contentsParsers = new ConcurrentHashMap<>();
+    protected Map<String, SuggestDocumentFields> documentFields = new ConcurrentHashMap<>();
+    protected final long analysisCacheSize;
+    protected Map<String, Long> accessTimes = new ConcurrentHashMap<>();
+    protected final Map<String, Object> suggesterLocks = new ConcurrentHashMap<>();
+    protected final TimeValue suggesterIdleTimeout;
+    protected final TimeValue suggesterEvictionInterval;
+    protected final String[] warmupIndices;
+    protected ScheduledFuture<?> evictionFuture;
+    protected SuggestResponseCache responseCache;
+    protected final Map<String, Long> pendingInvalidations = new ConcurrentHashMap<>();
+    protected final boolean cacheSnapshotEnabled;
+    protected final int cacheSnapshotSize;
+    protected final TimeValue cacheSnapshotInterval;
+    protected final TimeValue cacheSnapshotMaxAge;
+    protected ScheduledFuture<?> cacheSnapshotFuture;
+    // UUIDs of the suggest indices of the restored responses, checked against the first recovered cluster state
+    protected final Map<SuggestResponseCache.Key, String> restoredIndexUuids = new ConcurrentHashMap<>();
+    protected SuggestRequestCoalescer coalescer;
+    protected SuggestSessionStore sessionStore;
+    protected final boolean prefixTierEnabled;
+    protected final int prefixTierSize;
+    protected final TimeValue prefixTierInterval;
+    protected final Map<String, PrefixSuggestTier> prefixTiers = new ConcurrentHashMap<>();
+    protected final Set<String> stalePrefixTiers = ConcurrentHashMap.newKeySet();
+    protected ScheduledFuture<?> prefixTierFuture;
+    protected final CounterMetric prefixTierHitCount = new CounterMetric();
+    protected final CounterMetric prefixTierMissCount = new CounterMetric();
+    protected final boolean trendingEnabled;
+    protected final TimeValue trendingBucket;
+    protected final int trendingBuckets;
+    protected final int trendingDepth;
+    protected final int trendingWidth;
+    protected final int trendingCandidates;
+    protected final Map<String, TrendingWords> trendingWords = new ConcurrentHashMap<>();
+    protected final boolean fanOutEnabled;
+    protected final Map<String, Float> fanOutMaxScores = new ConcurrentHashMap<>();
+    protected final SuggestMetrics metrics;
+    protected volatile Map<String, Float> prefixMatchWeights = Collections.emptyMap();
+    protected volatile Map<String, TimeValue> suggestTimeouts = Collections.emptyMap();
+    protected final TimeValue defaultSuggestTimeout;
+    protected final String[] defaultBadQueries;
+    protected volatile String[] badQueries;
+    protected volatile BadQueryMatcher badQueryMatcher = BadQueryMatcher.EMPTY;
+
+    protected final boolean writeBehind;
+    protected final int writeBehindCapacity;
+    protected final int writeBehindFlushSize;
+    protected final TimeValue writeBehindFlushInterval;
+    protected Map<String, SearchWordBuffer> writeBuffers = new ConcurrentHashMap<>();
+    protected ScheduledFuture<?> writeBehindFuture;
+    protected final CounterMetric bufferedCount = new CounterMetric();
+    protected final CounterMetric flushedCount = new CounterMetric();
+    protected final CounterMetric failedCount = new CounterMetric();
+    protected final CounterMetric rejectedCount = new CounterMetric();
+
+    protected final List<PopularWordsSnapshot> pwordsSnapshots = new ArrayList<>();
+    protected final String[] pwordsExcludeWords;
+    protected final TimeValue pwordsSnapshotInterval;
+    protected ScheduledFuture<?> pwordsSnapshotFuture;
+
+    protected final int indexJobBatchSize;
+    protected final TimeValue indexJobScroll;
+    protected final TimeValue indexJobKeepAlive;
+    protected Map<String, DocumentIndexJob> indexJobs = new ConcurrentHashMap<>();
 
     @Inject
-    public FessSuggestService(final Settings settings, final Client client) {
+    public FessSuggestService(final Settings settings, final Client client, final ThreadPool threadPool,
+            final ClusterService clusterService, final NodeSettingsService nodeSettingsService, final NodeEnvironment nodeEnv,
+            final IndicesClusterStateService indicesClusterStateService) {
         super(settings);
         logger.info("CREATE AbTestService");
         this.client = client;
+        this.threadPool = threadPool;
+        this.clusterService = clusterService;
+        this.nodeSettingsService = nodeSettingsService;
+        this.nodeEnv = nodeEnv;
+        this.clusterName = ClusterName.clusterNameFromSettings(settings).value();
+
+        defaultBadQueries = settings.getAsArray(SETTINGS_NGWORD_KEY);
+        updateBadQueries(defaultBadQueries);
+
+        suggesterIdleTimeout = settings.getAsTime(SETTINGS_SUGGESTER_IDLE_TIMEOUT, TimeValue.timeValueMinutes(30));
+        suggesterEvictionInterval = settings.getAsTime(SETTINGS_SUGGESTER_EVICTION_INTERVAL, TimeValue.timeValueMinutes(1));
+        warmupIndices = settings.getAsArray(SETTINGS_SUGGESTER_WARMUP);
+        metrics = new SuggestMetrics(settings.getAsInt(SETTINGS_METRICS_MAX_INDICES, 100));
+
+        if (settings.getAsBoolean(SETTINGS_CACHE_ENABLED, false)) {
+            final long cacheSize = settings.getAsLong(SETTINGS_CACHE_SIZE, 1000L);
+            final TimeValue cacheExpire = settings.getAsTime(SETTINGS_CACHE_EXPIRE, TimeValue.timeValueMinutes(1));
+            responseCache = new SuggestResponseCache(cacheSize, cacheExpire.millis());
+        }
+        cacheSnapshotEnabled = settings.getAsBoolean(SETTINGS_CACHE_SNAPSHOT_ENABLED, false);
+        cacheSnapshotSize = settings.getAsInt(SETTINGS_CACHE_SNAPSHOT_SIZE, 1000);
+        cacheSnapshotInterval = settings.getAsTime(SETTINGS_CACHE_SNAPSHOT_INTERVAL, TimeValue.timeValueMinutes(1));
+        cacheSnapshotMaxAge = settings.getAsTime(SETTINGS_CACHE_SNAPSHOT_MAX_AGE, TimeValue.timeValueMinutes(10));
+
+        defaultSuggestTimeout = settings.getAsTime(SETTINGS_SUGGEST_TIMEOUT, TimeValue.timeValueMillis(-1));
+
+        if (settings.getAsBoolean(SETTINGS_COALESCE_ENABLED, true)) {
+            coalescer = new SuggestRequestCoalescer();
+        }
+
+        analysisCacheSize = settings.getAsLong(SETTINGS_ANALYSIS_CACHE_SIZE, 10000L);
+
+        prefixTierEnabled = settings.getAsBoolean(SETTINGS_PREFIX_TIER_ENABLED, false);
+        prefixTierSize = settings.getAsInt(SETTINGS_PREFIX_TIER_SIZE, 1000);
+        prefixTierInterval = settings.getAsTime(SETTINGS_PREFIX_TIER_INTERVAL, TimeValue.timeValueMinutes(1));
+
+        fanOutEnabled = settings.getAsBoolean(SETTINGS_FANOUT_ENABLED, false);
+
+        if (settings.getAsBoolean(SETTINGS_SESSION_ENABLED, true)) {
+            final int candidates = settings.getAsInt(SETTINGS_SESSION_CANDIDATES, 50);
+            final long maxCandidates = settings.getAsLong(SETTINGS_SESSION_MAX_CANDIDATES, 100000L);
+            final TimeValue sessionExpire = settings.getAsTime(SETTINGS_SESSION_EXPIRE, TimeValue.timeValueSeconds(30));
+            sessionStore = new SuggestSessionStore(candidates, maxCandidates, sessionExpire.millis());
+        }
+
+        trendingEnabled = settings.getAsBoolean(SETTINGS_TRENDING_ENABLED, true);
+        trendingBucket = settings.getAsTime(SETTINGS_TRENDING_BUCKET, TimeValue.timeValueMinutes(1));
+        trendingBuckets = settings.getAsInt(SETTINGS_TRENDING_BUCKETS, 60);
+        trendingDepth = settings.getAsInt(SETTINGS_TRENDING_DEPTH, 4);
+        trendingWidth = settings.getAsInt(SETTINGS_TRENDING_WIDTH, 1024);
+        trendingCandidates = settings.getAsInt(SETTINGS_TRENDING_CANDIDATES, 1000);
+
+        writeBehind = settings.getAsBoolean(SETTINGS_WRITE_BEHIND_ENABLED, false);
+        writeBehindCapacity = settings.getAsInt(SETTINGS_WRITE_BEHIND_CAPACITY, 10000);
+        writeBehindFlushSize = settings.getAsInt(SETTINGS_WRITE_BEHIND_FLUSH_SIZE, 1000);
+        writeBehindFlushInterval = settings.getAsTime(SETTINGS_WRITE_BEHIND_FLUSH_INTERVAL, TimeValue.timeValueSeconds(1));
+
+        pwordsExcludeWords = settings.getAsArray(SETTINGS_PWORDS_EXCLUDE_WORDS);
+        pwordsSnapshotInterval = settings.getAsTime(SETTINGS_PWORDS_SNAPSHOT_INTERVAL, TimeValue.timeValueMinutes(5));
+        indexJobBatchSize = settings.getAsInt(SETTINGS_FROM_INDEX_BATCH_SIZE, 500);
+        indexJobScroll = settings.getAsTime(SETTINGS_FROM_INDEX_SCROLL, TimeValue.timeValueMinutes(1));
+        indexJobKeepAlive = settings.getAsTime(SETTINGS_FROM_INDEX_KEEP_ALIVE, TimeValue.timeValueHours(1));
+        final int windowSize = settings.getAsInt(SETTINGS_PWORDS_WINDOW_SIZE, 20);
+        for (final Map.Entry<String, Settings> entry : settings.getGroups(SETTINGS_PWORDS_SNAPSHOTS).entrySet()) {
+            pwordsSnapshots.add(new PopularWordsSnapshot(entry.getKey(), entry.getValue(), windowSize));
+        }
+
+        // plugin services are stopped after the cluster and transport services, so the buffered words are flushed
+        // while the node stops the cluster state handling, after the HTTP server
+        indicesClusterStateService.addLifecycleListener(new LifecycleListener() {
+            @Override
+            public void beforeStop() {
+                flushAllWriteBuffers();
+            }
+        });
     }
 
     @Override
     protected void doStart() throws ElasticsearchException {
-
+        updatePrefixMatchWeights(clusterService.state().getMetaData());
+        updateSuggestTimeouts(clusterService.state().getMetaData());
+        loadCacheSnapshot();
+        validateRestoredResponses(clusterService.state());
+        clusterService.add(this);
+        nodeSettingsService.addListener(this);
+        if (warmupIndices.length > 0) {
+            threadPool.generic().execute(this::warmUpSuggesters);
+        }
+        if (suggesterIdleTimeout.millis() > 0) {
+            evictionFuture = threadPool.scheduleWithFixedDelay(() -> {
+                try {
+                    threadPool.generic().execute(this::evictIdleSuggesters);
+                } catch (final EsRejectedExecutionException e) {
+                    logger.debug("Failed to schedule an eviction of idle suggesters.", e);
+                }
+            }, suggesterEvictionInterval);
+        }
+        if (writeBehind) {
+            writeBehindFuture = threadPool.scheduleWithFixedDelay(() -> {
+                try {
+                    threadPool.executor(FessSuggestPlugin.THREAD_POOL_WRITE).execute(this::flushWriteBuffers);
+                } catch (final EsRejectedExecutionException e) {
+                    logger.debug("Failed to schedule a flush of write buffers.", e);
+                }
+            }, writeBehindFlushInterval);
+        }
+        if (prefixTierEnabled) {
+            prefixTierFuture = threadPool.scheduleWithFixedDelay(() -> {
+                try {
+                    threadPool.generic().execute(this::refreshPrefixTiers);
+                } catch (final EsRejectedExecutionException e) {
+                    logger.debug("Failed to schedule a rebuild of prefix tiers.", e);
+                }
+            }, prefixTierInterval);
+        }
+        if (!pwordsSnapshots.isEmpty()) {
+            final Runnable refresher = () -> {
+                try {
+                    threadPool.executor(FessSuggestPlugin.THREAD_POOL_PWORDS).execute(this::refreshPopularWordsSnapshots);
+                } catch (final EsRejectedExecutionException e) {
+                    logger.debug("Failed to schedule a refresh of popular words snapshots.", e);
+                }
+            };
+            threadPool.generic().execute(refresher);
+            pwordsSnapshotFuture = threadPool.scheduleWithFixedDelay(refresher, pwordsSnapshotInterval);
+        }
+        if (cacheSnapshotFile() != null) {
+            cacheSnapshotFuture = threadPool.scheduleWithFixedDelay(() -> {
+                try {
+                    threadPool.generic().execute(this::writeCacheSnapshot);
+                } catch (final EsRejectedExecutionException e) {
+                    logger.debug("Failed to schedule a cache snapshot.", e);
+                }
+            }, cacheSnapshotInterval);
+        }
     }
 
     @Override
     protected void doStop() throws ElasticsearchException {
-
+        clusterService.remove(this);
+        nodeSettingsService.removeListener(this);
+        if (evictionFuture != null) {
+            evictionFuture.cancel(false);
+            evictionFuture = null;
+        }
+        if (writeBehindFuture != null) {
+            writeBehindFuture.cancel(false);
+            writeBehindFuture = null;
+        }
+        if (pwordsSnapshotFuture != null) {
+            pwordsSnapshotFuture.cancel(false);
+            pwordsSnapshotFuture = null;
+        }
+        if (prefixTierFuture != null) {
+            prefixTierFuture.cancel(false);
+            prefixTierFuture = null;
+        }
+        if (cacheSnapshotFuture != null) {
+            cacheSnapshotFuture.cancel(false);
+            cacheSnapshotFuture = null;
+        }
+        indexJobs.values().forEach(DocumentIndexJob::cancel);
+        flushAllWriteBuffers();
+        writeCacheSnapshot();
     }
 
     @Override
     protected void doClose() throws ElasticsearchException {
+        for (final String id : suggesters.keySet()) {
+            final Suggester suggester = withSuggesterLock(id, () -> removeSuggester(id));
+            if (suggester != null) {
+                suggester.shutdown();
+            }
+        }
+        if (responseCache != null) {
+            responseCache.invalidateAll();
+        }
+        if (sessionStore != null) {
+            sessionStore.invalidateAll();
+        }
+    }
 
+    protected void warmUpSuggesters() {
+        for (final String id : warmupIndices) {
+            try {
+                indexer(id);
+                logger.debug("Warmed up the suggester for {}.", id);
+            } catch (final Exception e) {
+                logger.warn("Failed to warm up the suggester for {}.", e, id);
+            }
+        }
     }
 
-    public Suggester suggester(final String id) {
-        Suggester suggester = suggesters.get(id);
+    protected void evictIdleSuggesters() {
+        final long expired = threadPool.estimatedTimeInMillis() - suggesterIdleTimeout.millis();
+        for (final Map.Entry<String, Long> entry : accessTimes.entrySet()) {
+            final String id = entry.getKey();
+            if (entry.getValue() > expired || isInUse(id)) {
+                continue;
+            }
+            final Suggester suggester = withSuggesterLock(id, () -> {
+                final Long accessTime = accessTimes.get(id);
+                if (accessTime == null || accessTime > expired) {
+                    return null;
+                }
+                return removeSuggester(id);
+            });
+            if (suggester != null) {
+                suggester.shutdown();
+                logger.debug("Evicted the idle suggester for {}.", id);
+            }
+        }
+    }
+
+    protected boolean isInUse(final String id) {
+        final SearchWordBuffer buffer = writeBuffers.get(id);
+        if (buffer != null && buffer.size() > 0) {
+            return true;
+        }
+        final DocumentIndexJob job = indexJobs.get(id);
+        return job != null && job.isRunning();
+    }
+
+    @Override
+    public void clusterChanged(final ClusterChangedEvent event) {
+        validateRestoredResponses(event.state());
+        if (event.metaDataChanged()) {
+            updatePrefixMatchWeights(event.state().getMetaData());
+            updateSuggestTimeouts(event.state().getMetaData());
+            fanOutMaxScores.keySet().removeIf(name -> !event.state().getMetaData().hasIndex(name));
+            metrics.retainIndices(id -> event.state().getMetaData().getAliasAndIndexLookup().containsKey(suggestIndex(id)));
+        }
+    }
+
+    @Override
+    public void onRefreshSettings(final Settings settings) {
+        updateBadQueries(settings.getAsArray(SETTINGS_NGWORD_KEY, defaultBadQueries));
+    }
+
+    protected void updateBadQueries(final String[] values) {
+        if (Arrays.equals(values, badQueries)) {
+            return;
+        }
+        final BadQueryMatcher matcher = new BadQueryMatcher(values);
+        badQueries = values;
+        badQueryMatcher = matcher;
+        logger.debug("Loaded {} NG queries.", matcher.size());
+    }
+
+    public boolean isBadQuery(final String query) {
+        return badQueryMatcher.matches(query);
+    }
+
+    protected void updatePrefixMatchWeights(final MetaData metaData) {
+        final Map<String, Float> weights = new HashMap<>();
+        for (final IndexMetaData indexMD : metaData) {
+            final float weight = indexMD.getSettings().getAsFloat(INDEX_PREFIX_MATCH_WEIGHT, 0f);
+            if (weight <= 0) {
+                continue;
+            }
+            weights.put(indexMD.getIndex(), weight);
+            for (final ObjectCursor<String> alias : indexMD.getAliases().keys()) {
+                weights.merge(alias.value, weight, Math::max);
+            }
+        }
+        prefixMatchWeights = weights;
+    }
+
+    protected void updateSuggestTimeouts(final MetaData metaData) {
+        final Map<String, TimeValue> timeouts = new HashMap<>();
+        for (final IndexMetaData indexMD : metaData) {
+            final TimeValue timeout = indexMD.getSettings().getAsTime(INDEX_SUGGEST_TIMEOUT, null);
+            if (timeout == null) {
+                continue;
+            }
+            timeouts.put(indexMD.getIndex(), timeout);
+            for (final ObjectCursor<String> alias : indexMD.getAliases().keys()) {
+                timeouts.merge(alias.value, timeout, (t1, t2) -> t1.millis() <= t2.millis() ? t1 : t2);
+            }
+        }
+        suggestTimeouts = timeouts;
+    }
+
+    public TimeValue getSuggestTimeout(final String id) {
+        final TimeValue timeout = suggestTimeouts.get(id);
+        return timeout != null ? timeout : defaultSuggestTimeout;
+    }
+
+    public float getPrefixMatchWeight(final String id) {
+        final Float weight = prefixMatchWeights.get(id);
+        return weight != null ? weight : 0f;
+    }
+
+    protected Object suggesterLock(final String id) {
+        return suggesterLocks.computeIfAbsent(id, key -> new Object());
+    }
+
+    /**
+     * Runs the action holding the lock of the suggester.
+     * A lock is removed with its suggester, so a thread which waited on a removed lock retries with a new one.
+     */
+    protected <T> T withSuggesterLock(final String id, final Supplier<T> action) {
+        while (true) {
+            final Object lock = suggesterLock(id);
+            synchronized (lock) {
+                if (suggesterLocks.get(id) == lock) {
+                    return action.get();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the suggester and its state. The caller must hold the lock of the suggester.
+     */
+    protected FessSuggester removeSuggester(final String id) {
+        indexers.remove(id);
+        contentsParsers.remove(id);
+        documentFields.remove(id);
+        prefixTiers.remove(id);
+        accessTimes.remove(id);
+        suggesterLocks.remove(id);
+        return suggesters.remove(id);
+    }
+
+    protected FessSuggester createSuggester(final String id) {
+        return FessSuggester.fessBuilder().build(client, id);
+    }
+
+    public FessSuggester suggester(final String id) {
+        accessTimes.put(id, threadPool.estimatedTimeInMillis());
+        FessSuggester suggester = suggesters.get(id);
         if(suggester != null) {
             return suggester;
         }
 
-        synchronized (this) {
-            if(suggesters.get(id) == null) {
-                suggesters.put(id, Suggester.builder().build(client, id));
+        return withSuggesterLock(id, () -> {
+            FessSuggester current = suggesters.get(id);
+            if(current == null) {
+                current = createSuggester(id);
+                suggesters.put(id, current);
+            }
+            return current;
+        });
+    }
+
+    public FessSuggestIndexer indexer(final String id) {
+        // touched first, as suggester() does, so an eviction cannot remove the indexer once it is read
+        accessTimes.put(id, threadPool.estimatedTimeInMillis());
+        FessSuggestIndexer indexer = indexers.get(id);
+        if(indexer != null) {
+            return indexer;
+        }
+
+        return withSuggesterLock(id, () -> {
+            FessSuggestIndexer current = indexers.get(id);
+            if(current == null) {
+                current = suggester(id).indexer();
+                if (analysisCacheSize > 0) {
+                    final CachingContentsParser contentsParser = new CachingContentsParser(analysisCacheSize);
+                    current.setContentsParser(contentsParser);
+                    contentsParsers.put(id, contentsParser);
+                }
+                indexers.put(id, current);
+            }
+            return current;
+        });
+    }
+
+    public void deleteSuggester(final String id) {
+        final Suggester suggester = withSuggesterLock(id, () -> removeSuggester(id));
+        if (suggester != null) {
+            suggester.shutdown();
+        }
+        trendingWords.remove(id);
+        invalidateCache(id);
+    }
+
+    public SuggestIndexResponse indexFromSearchWord(final String id, final String keyword, final String[] fields, final String[] tags,
+            final String[] roles, final int freq, final String[] langs) {
+        final SuggestIndexResponse response = indexer(id).indexFromSearchWord(keyword, fields, tags, roles, freq, langs);
+        if (!response.hasError()) {
+            recordSearchWord(id, keyword, freq);
+        }
+        invalidateCache(id);
+        return response;
+    }
+
+    /**
+     * Indexes the search words with one bulk request.
+     */
+    public SuggestIndexResponse indexFromSearchWords(final String id, final List<SearchWord> searchWords) {
+        final SuggestIndexResponse response = indexer(id).indexFromSearchWords(searchWords);
+        if (!response.hasError()) {
+            for (final SearchWord searchWord : searchWords) {
+                recordSearchWord(id, searchWord.getKeyword(), searchWord.getFreq());
+            }
+        }
+        invalidateCache(id);
+        return response;
+    }
+
+    public SuggestIndexResponse indexFromDocument(final String id, final String[] fields, final List<Map<String, Object>> documents) {
+        return indexFromDocument(id, fields, toArray(documents));
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static Map<String, Object>[] toArray(final List<Map<String, Object>> documents) {
+        return documents.toArray(new Map[documents.size()]);
+    }
+
+    public SuggestIndexResponse indexFromDocument(final String id, final String[] fields, final Map<String, Object>[] documents) {
+        final SuggestIndexer indexer = indexer(id);
+        if (!documentFields(id).supportsAll(fields)) {
+            addSupportedFields(id, indexer, fields);
+        }
+
+        final SuggestIndexResponse response = indexer.indexFromDocument(documents);
+        invalidateCache(id);
+        return response;
+    }
+
+    public SuggestDocumentFields documentFields(final String id) {
+        SuggestDocumentFields fields = documentFields.get(id);
+        if (fields != null) {
+            return fields;
+        }
+        return withSuggesterLock(id, () -> {
+            SuggestDocumentFields current = documentFields.get(id);
+            if (current == null) {
+                current = SuggestDocumentFields.load(suggester(id));
+                documentFields.put(id, current);
+            }
+            return current;
+        });
+    }
+
+    protected void addSupportedFields(final String id, final SuggestIndexer indexer, final String[] fields) {
+        withSuggesterLock(id, () -> {
+            final Suggester suggester = suggester(id);
+            // reload the settings, other nodes may have added the fields
+            final SuggestDocumentFields current = SuggestDocumentFields.load(suggester);
+            for (final String field : new LinkedHashSet<>(Arrays.asList(fields))) {
+                if (!current.supports(field)) {
+                    suggester.settings().array().add(SuggestDocumentFields.SUPPORTED_FIELDS, field);
+                }
+            }
+            final SuggestDocumentFields updated = current.withFields(fields);
+            indexer.setSupportedFields(updated.getSupportedFields());
+            documentFields.put(id, updated);
+            return updated;
+        });
+    }
+
+    public synchronized DocumentIndexJob startIndexJob(final String id, final String sourceIndex, final String sourceType,
+            final String[] fields, final int batchSize) {
+        final DocumentIndexJob current = indexJobs.get(id);
+        if (current != null && current.isRunning()) {
+            throw new IllegalStateException("Suggest index job for " + id + " is already running.");
+        }
+        final DocumentIndexJob job = new DocumentIndexJob(this, client, id, sourceIndex, sourceType, fields,
+            batchSize > 0 ? batchSize : indexJobBatchSize, indexJobScroll);
+        indexJobs.put(id, job);
+        threadPool.generic().execute(() -> {
+            try {
+                job.run();
+            } finally {
+                // keep the finished job for status requests for a while
+                threadPool.schedule(indexJobKeepAlive, ThreadPool.Names.GENERIC, () -> indexJobs.remove(id, job));
+            }
+        });
+        return job;
+    }
+
+    public DocumentIndexJob indexJob(final String id) {
+        return indexJobs.get(id);
+    }
+
+    public DocumentIndexJob cancelIndexJob(final String id) {
+        final DocumentIndexJob job = indexJobs.get(id);
+        if (job != null) {
+            job.cancel();
+        }
+        return job;
+    }
+
+    public SuggestRequestCoalescer coalescer() {
+        return coalescer;
+    }
+
+    protected void refreshPrefixTiers() {
+        for (final String id : suggesters.keySet()) {
+            if (prefixTiers.containsKey(id) && !stalePrefixTiers.remove(id)) {
+                continue;
+            }
+            try {
+                buildPrefixTier(id);
+            } catch (final Exception e) {
+                logger.warn("Failed to build the prefix tier of {}.", e, id);
+            }
+        }
+    }
+
+    protected void buildPrefixTier(final String id) {
+        final Suggester suggester = suggesters.get(id);
+        if (suggester == null) {
+            return;
+        }
+        final long start = System.nanoTime();
+        // same frequency functions as a suggest query, without the prefix match weight
+        final FunctionScoreQueryBuilder query = QueryBuilders.functionScoreQuery(QueryBuilders.matchAllQuery());
+        query.add(ScoreFunctionBuilders.fieldValueFactorFunction(FieldNames.DOC_FREQ).missing(0.1f)
+            .modifier(FieldValueFactorFunction.Modifier.LOG2P).setWeight(1.0f));
+        query.add(ScoreFunctionBuilders.fieldValueFactorFunction(FieldNames.QUERY_FREQ).missing(0.1f)
+            .modifier(FieldValueFactorFunction.Modifier.LOG2P).setWeight(1.0f));
+        query.add(ScoreFunctionBuilders.fieldValueFactorFunction(FieldNames.USER_BOOST).missing(1.0f).setWeight(1.0f));
+        query.boostMode(CombineFunction.REPLACE);
+        query.scoreMode("multiply");
+        final SearchResponse response = client.prepareSearch(suggester.getIndex()).setTypes(suggester.getType())
+            .setQuery(query).addSort("_score", SortOrder.DESC).setSize(prefixTierSize).execute().actionGet();
+
+        final SearchHit[] hits = response.getHits().getHits();
+        final List<SuggestItem> items = new ArrayList<>(hits.length);
+        final float[] scores = new float[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            final Map<String, Object> source = hits[i].sourceAsMap();
+            final List<String[]> readings = new ArrayList<>();
+            for (int j = 0; source.containsKey(FieldNames.READING_PREFIX + j); j++) {
+                readings.add(toArray(source.get(FieldNames.READING_PREFIX + j)));
+            }
+            items.add(new SuggestItem(new String[] { source.get(FieldNames.TEXT).toString() },
+                readings.toArray(new String[readings.size()][]), toArray(source.get(FieldNames.FIELDS)), 0, 1,
+                toArray(source.get(FieldNames.TAGS)), toArray(source.get(FieldNames.ROLES)),
+                toArray(source.get(FieldNames.LANGUAGES)), SuggestItem.Kind.QUERY));
+            scores[i] = hits[i].getScore();
+        }
+        final boolean complete = response.getHits().getTotalHits() <= hits.length;
+        prefixTiers.put(id, new PrefixSuggestTier(id, items, scores, complete,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String[] toArray(final Object value) {
+        if (value instanceof List) {
+            return ((List<Object>) value).stream().map(Object::toString).toArray(n -> new String[n]);
+        } else if (value != null) {
+            return new String[] { value.toString() };
+        }
+        return new String[0];
+    }
+
+    public boolean isPrefixTierEnabled() {
+        return prefixTierEnabled;
+    }
+
+    public PrefixSuggestTier prefixTier(final String id) {
+        return prefixTiers.get(id);
+    }
+
+    public Collection<PrefixSuggestTier> prefixTiers() {
+        return prefixTiers.values();
+    }
+
+    public void recordPrefixTierLookup(final boolean hit) {
+        if (hit) {
+            prefixTierHitCount.inc();
+        } else {
+            prefixTierMissCount.inc();
+        }
+    }
+
+    public long getPrefixTierHitCount() {
+        return prefixTierHitCount.count();
+    }
+
+    public long getPrefixTierMissCount() {
+        return prefixTierMissCount.count();
+    }
+
+    public Collection<CachingContentsParser> contentsParsers() {
+        return contentsParsers.values();
+    }
+
+    public boolean isTrendingEnabled() {
+        return trendingEnabled;
+    }
+
+    public void recordSearchWord(final String id, final String keyword, final long freq) {
+        if (!trendingEnabled) {
+            return;
+        }
+        trendingWords.computeIfAbsent(id,
+            key -> new TrendingWords(trendingBucket.millis(), trendingBuckets, trendingDepth, trendingWidth, trendingCandidates))
+            .add(keyword, freq, threadPool.estimatedTimeInMillis());
+    }
+
+    public List<TrendingWords.Trend> trending(final String id, final TimeValue window, final int size) {
+        final TrendingWords words = trendingWords.get(id);
+        if (words == null) {
+            return Collections.emptyList();
+        }
+        return words.trending(window.millis(), size, threadPool.estimatedTimeInMillis());
+    }
+
+    public Map<String, TrendingWords> trendingWords() {
+        return trendingWords;
+    }
+
+    public boolean isFanOutEnabled() {
+        return fanOutEnabled;
+    }
+
+    /**
+     * Returns the backing indices of the suggest index of the suggester if it is an alias
+     * of several indices, otherwise an empty list.
+     * Aliases with a filter or routing are not fanned out, as the requests to the
+     * backing indices would not apply them.
+     */
+    public List<IndexMetaData> backingIndices(final Suggester suggester) {
+        final AliasOrIndex aliasOrIndex = clusterService.state().getMetaData().getAliasAndIndexLookup().get(suggester.getIndex());
+        if (aliasOrIndex == null || !aliasOrIndex.isAlias() || aliasOrIndex.getIndices().size() < 2) {
+            return Collections.emptyList();
+        }
+        for (final IndexMetaData indexMD : aliasOrIndex.getIndices()) {
+            final AliasMetaData aliasMD = indexMD.getAliases().get(suggester.getIndex());
+            if (aliasMD != null && (aliasMD.filter() != null || aliasMD.searchRouting() != null)) {
+                return Collections.emptyList();
+            }
+        }
+        return aliasOrIndex.getIndices();
+    }
+
+    /**
+     * Runs the suggest request against each backing index in parallel, with the
+     * prefix match weight and the boost of the index, and merges the top items.
+     *
+     * @return the fan-out, to complete it with the responses received so far on a timeout
+     */
+    public SuggestFanOut fanOut(final String id, final Suggester suggester, final List<IndexMetaData> indices, final String query,
+            final int size, final String[] tags, final String[] roles, final String[] fields, final float weight,
+            final Consumer<SuggestResponse> success, final Consumer<Throwable> error) {
+        final Map<String, Float> boosts = new HashMap<>();
+        for (final IndexMetaData indexMD : indices) {
+            boosts.put(indexMD.getIndex(), indexMD.getSettings().getAsFloat(INDEX_SUGGEST_BOOST, 1f));
+        }
+        final SuggestFanOut fanOut = new SuggestFanOut(id, query, size, boosts, fanOutMaxScores, success, error);
+        for (final IndexMetaData indexMD : indices) {
+            final String target = indexMD.getIndex();
+            final ScoredSuggestRequest request = new ScoredSuggestRequest();
+            request.setIndex(target);
+            request.setType(suggester.getType());
+            request.setReadingConverter(suggester.getReadingConverter());
+            request.setNormalizer(suggester.getNormalizer());
+            request.setSize(size);
+            request.setQuery(query);
+            if (tags != null) {
+                Arrays.stream(tags).forEach(request::addTag);
+            }
+            if (roles != null) {
+                Arrays.stream(roles).forEach(request::addRole);
+            }
+            if (fields != null) {
+                Arrays.stream(fields).forEach(request::addField);
+            }
+            final float indexWeight = indexMD.getSettings().getAsFloat(INDEX_PREFIX_MATCH_WEIGHT, weight);
+            if (indexWeight > 0) {
+                request.setPrefixMatchWeight(indexWeight);
+            }
+            try {
+                request.execute(client)
+                    .then(r -> fanOut.onResponse(target, r, request))
+                    .error(t -> fanOut.onFailure(target, t));
+            } catch (final RuntimeException e) {
+                fanOut.onFailure(target, e);
+            }
+        }
+        return fanOut;
+    }
+
+    public SuggestSessionStore sessionStore() {
+        return sessionStore;
+    }
+
+    public SuggestMetrics metrics() {
+        return metrics;
+    }
+
+    public int getSuggesterCount() {
+        return suggesters.size();
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Adds the search word to the write buffer of the index.
+     * The search word is merged by later requests once it is buffered, so it must not be read afterwards.
+     *
+     * @return the number of records of the search word
+     */
+    public int bufferSearchWord(final String id, final SearchWord searchWord) {
+        final SearchWordBuffer buffer = writeBuffers.computeIfAbsent(id,
+            key -> new SearchWordBuffer(key, writeBehindCapacity, writeBehindFlushSize));
+        final String keyword = searchWord.getKeyword();
+        final int freq = searchWord.getFreq();
+        final int records = searchWord.getRecords();
+        final boolean full;
+        try {
+            full = buffer.add(searchWord);
+        } catch (final EsRejectedExecutionException e) {
+            rejectedCount.inc();
+            throw e;
+        }
+        bufferedCount.inc(records);
+        recordSearchWord(id, keyword, freq);
+        if (full && buffer.startFlush()) {
+            try {
+                threadPool.executor(FessSuggestPlugin.THREAD_POOL_WRITE).execute(() -> {
+                    try {
+                        flushWriteBuffer(buffer);
+                    } finally {
+                        buffer.finishFlush();
+                    }
+                });
+            } catch (final EsRejectedExecutionException e) {
+                buffer.finishFlush();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Flushes the write buffers which are not being flushed by another thread.
+     */
+    public void flushWriteBuffers() {
+        for (final SearchWordBuffer buffer : writeBuffers.values()) {
+            if (buffer.startFlush()) {
+                try {
+                    flushWriteBuffer(buffer);
+                } finally {
+                    buffer.finishFlush();
+                }
             }
         }
-        return suggesters.get(id);
     }
 
-    public synchronized void deleteSuggester(final String id) {
-        suggesters.remove(id);
+    /**
+     * Flushes all write buffers, waiting for running flushes to finish first.
+     */
+    protected void flushAllWriteBuffers() {
+        for (final SearchWordBuffer buffer : writeBuffers.values()) {
+            try {
+                if (!buffer.awaitFlush(WRITE_BUFFER_FLUSH_TIMEOUT.millis())) {
+                    logger.warn("Timed out waiting for the flush of the write buffer of {}, {} search words are not indexed.",
+                        buffer.getIndex(), buffer.size());
+                    continue;
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while flushing the write buffer of {}.", buffer.getIndex());
+                return;
+            }
+            try {
+                flushWriteBuffer(buffer);
+            } finally {
+                buffer.finishFlush();
+            }
+        }
+    }
+
+    protected void flushWriteBuffer(final SearchWordBuffer buffer) {
+        final List<SearchWord> searchWords = buffer.drain();
+        if (searchWords.isEmpty()) {
+            return;
+        }
+        final String id = buffer.getIndex();
+        long records = 0;
+        for (final SearchWord searchWord : searchWords) {
+            records += searchWord.getRecords();
+        }
+        try {
+            // the words were recorded as trending when they were buffered
+            final SuggestIndexResponse response = indexer(id).indexFromSearchWords(searchWords);
+            if (response.hasError()) {
+                failedCount.inc(records);
+                logger.warn("Failed to index {} buffered search words: {}", searchWords.size(), response.getErrors());
+            } else {
+                flushedCount.inc(records);
+            }
+        } catch (final Exception e) {
+            failedCount.inc(records);
+            logger.warn("Failed to index {} buffered search words.", e, searchWords.size());
+        }
+        invalidateCache(id);
+    }
+
+    public long getBufferedCount() {
+        return bufferedCount.count();
+    }
+
+    public long getFlushedCount() {
+        return flushedCount.count();
+    }
+
+    public long getFailedCount() {
+        return failedCount.count();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.count();
+    }
+
+    public int getBufferSize() {
+        int size = 0;
+        for (final SearchWordBuffer buffer : writeBuffers.values()) {
+            size += buffer.size();
+        }
+        return size;
+    }
+
+    public void refreshPopularWordsSnapshots() {
+        for (final PopularWordsSnapshot snapshot : pwordsSnapshots) {
+            try {
+                final PopularWordsRequestBuilder builder = suggester(snapshot.getIndex()).popularWords()
+                    .setSize(snapshot.getSize())
+                    .setWindowSize(snapshot.getWindowSize())
+                    .setQueryFreqThreshold(snapshot.getQueryFreqThreshold());
+                snapshot.getTags().forEach(builder::addTag);
+                snapshot.getRoles().forEach(builder::addRole);
+                snapshot.getFields().forEach(builder::addField);
+                for (final String excludeWord : pwordsExcludeWords) {
+                    builder.addExcludeWord(excludeWord);
+                }
+                snapshot.setResponse(builder.execute().getResponse());
+            } catch (final Exception e) {
+                logger.warn("Failed to refresh popular words snapshot: {}", e, snapshot.getName());
+            }
+        }
+    }
+
+    public PopularWordsSnapshot popularWordsSnapshot(final String id, final String tags, final String roles, final String fields,
+            final int size, final int windowSize, final int queryFreqThreshold) {
+        for (final PopularWordsSnapshot snapshot : pwordsSnapshots) {
+            if (snapshot.getResponse() != null && snapshot.matches(id, tags, roles, fields, size, windowSize, queryFreqThreshold)) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    public List<PopularWordsSnapshot> popularWordsSnapshots() {
+        return pwordsSnapshots;
+    }
+
+    protected Path cacheSnapshotFile() {
+        if (!cacheSnapshotEnabled || responseCache == null || !nodeEnv.hasNodeFile()) {
+            return null;
+        }
+        return nodeEnv.nodeDataPaths()[0].resolve(CACHE_SNAPSHOT_FILE);
+    }
+
+    protected void loadCacheSnapshot() {
+        final Path file = cacheSnapshotFile();
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        try {
+            final SuggestCacheSnapshot snapshot = SuggestCacheSnapshot.read(file);
+            final long age = System.currentTimeMillis() - snapshot.getTimestamp();
+            if (!clusterName.equals(snapshot.getClusterName()) || age < 0 || age > cacheSnapshotMaxAge.millis()) {
+                logger.info("Discarded the stale cache snapshot {} of {}.", file, snapshot.getClusterName());
+                Files.deleteIfExists(file);
+                return;
+            }
+            if (prefixMatchWeights.isEmpty()) {
+                prefixMatchWeights = snapshot.getPrefixMatchWeights();
+            }
+            if (suggestTimeouts.isEmpty()) {
+                suggestTimeouts = snapshot.getSuggestTimeouts();
+            }
+            int loaded = 0;
+            for (final SuggestCacheSnapshot.Entry entry : snapshot.getEntries()) {
+                // expires at the time it would have without the restart
+                if (responseCache.isExpired(entry.getResponse(), System.currentTimeMillis())) {
+                    continue;
+                }
+                responseCache.put(entry.getKey(), entry.getResponse());
+                restoredIndexUuids.put(entry.getKey(), entry.getIndexUuid());
+                loaded++;
+            }
+            logger.info("Loaded {} cached responses from {}.", loaded, file);
+        } catch (final Exception e) {
+            logger.warn("Discarded the unreadable cache snapshot {}.", e, file);
+            try {
+                Files.deleteIfExists(file);
+            } catch (final IOException ioe) {
+                logger.debug("Failed to delete {}.", ioe, file);
+            }
+        }
+    }
+
+    public void writeCacheSnapshot() {
+        final Path file = cacheSnapshotFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            final MetaData metaData = clusterService.state().getMetaData();
+            final List<SuggestCacheSnapshot.Entry> entries = new ArrayList<>();
+            for (final SuggestCacheSnapshot.Entry entry : responseCache.hottest(cacheSnapshotSize)) {
+                entries.add(new SuggestCacheSnapshot.Entry(entry.getKey(), entry.getResponse(), entry.getHitCount(),
+                    suggestIndexUuid(metaData, entry.getKey().getIndex())));
+            }
+            new SuggestCacheSnapshot(clusterName, System.currentTimeMillis(), prefixMatchWeights, suggestTimeouts, entries).write(file);
+            logger.debug("Wrote a cache snapshot to {}.", file);
+        } catch (final Exception e) {
+            logger.warn("Failed to write a cache snapshot to {}.", e, file);
+        }
+    }
+
+    /**
+     * Drops the restored responses whose suggest index has been deleted or
+     * recreated since the snapshot, once the cluster state is recovered.
+     */
+    protected void validateRestoredResponses(final ClusterState state) {
+        if (restoredIndexUuids.isEmpty() || state.blocks().hasGlobalBlock(GatewayService.STATE_NOT_RECOVERED_BLOCK)) {
+            return;
+        }
+        int dropped = 0;
+        for (final Map.Entry<SuggestResponseCache.Key, String> entry : restoredIndexUuids.entrySet()) {
+            if (!entry.getValue().equals(suggestIndexUuid(state.getMetaData(), entry.getKey().getIndex()))) {
+                responseCache.invalidate(entry.getKey());
+                dropped++;
+            }
+        }
+        restoredIndexUuids.clear();
+        if (dropped > 0) {
+            logger.info("Dropped {} restored responses of recreated suggest indices.", dropped);
+        }
+    }
+
+    protected String suggestIndexUuid(final MetaData metaData, final String id) {
+        final AliasOrIndex aliasOrIndex = metaData.getAliasAndIndexLookup().get(suggestIndex(id));
+        if (aliasOrIndex == null) {
+            return "";
+        }
+        final Set<String> uuids = new TreeSet<>();
+        for (final IndexMetaData indexMD : aliasOrIndex.getIndices()) {
+            uuids.add(indexMD.getIndexUUID());
+        }
+        return String.join(",", uuids);
+    }
+
+    public SuggestResponseCache responseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Drops cached results of the index and of every index or alias sharing a
+     * backing index with it, now and again once the written data is refreshed,
+     * so results cached by reads in between do not outlive the refresh.
+     */
+    public void invalidateCache(final String id) {
+        invalidateCacheNow(id);
+        final TimeValue refreshInterval = getRefreshInterval(id);
+        if (refreshInterval.millis() > 0) {
+            scheduleInvalidation(id, refreshInterval);
+        }
+    }
+
+    protected void invalidateCacheNow(final String id) {
+        for (final String target : resolveCacheIds(id)) {
+            if (responseCache != null) {
+                responseCache.invalidate(target);
+            }
+            if (sessionStore != null) {
+                sessionStore.invalidate(target);
+            }
+            if (prefixTierEnabled) {
+                stalePrefixTiers.add(target);
+            }
+        }
+    }
+
+    protected void scheduleInvalidation(final String id, final TimeValue delay) {
+        if (pendingInvalidations.put(id, threadPool.estimatedTimeInMillis()) != null) {
+            return;
+        }
+        try {
+            threadPool.schedule(delay, ThreadPool.Names.GENERIC, () -> runPendingInvalidation(id, delay));
+        } catch (final EsRejectedExecutionException e) {
+            pendingInvalidations.remove(id);
+            logger.debug("Failed to schedule an invalidation of {}.", e, id);
+        }
+    }
+
+    protected void runPendingInvalidation(final String id, final TimeValue delay) {
+        final Long writeTime = pendingInvalidations.get(id);
+        if (writeTime == null) {
+            return;
+        }
+        final long remaining = writeTime + delay.millis() - threadPool.estimatedTimeInMillis();
+        if (remaining > 0 || !pendingInvalidations.remove(id, writeTime)) {
+            // written again since scheduled
+            try {
+                threadPool.schedule(TimeValue.timeValueMillis(Math.max(remaining, 0) + 1), ThreadPool.Names.GENERIC,
+                    () -> runPendingInvalidation(id, delay));
+                return;
+            } catch (final EsRejectedExecutionException e) {
+                pendingInvalidations.remove(id);
+            }
+        }
+        invalidateCacheNow(id);
+    }
+
+    /**
+     * Returns the index, and the indices and aliases known to this node whose
+     * suggest index resolves to a concrete index of the suggest index of the index.
+     */
+    protected Set<String> resolveCacheIds(final String id) {
+        final MetaData metaData = clusterService.state().getMetaData();
+        final Set<String> written = concreteIndices(metaData, suggestIndex(id));
+        final Set<String> candidates = new HashSet<>(suggesters.keySet());
+        candidates.addAll(prefixTiers.keySet());
+        if (responseCache != null) {
+            candidates.addAll(responseCache.indices());
+        }
+        final Set<String> ids = new HashSet<>();
+        ids.add(id);
+        for (final String candidate : candidates) {
+            if (!ids.contains(candidate) && !Collections.disjoint(written, concreteIndices(metaData, suggestIndex(candidate)))) {
+                ids.add(candidate);
+            }
+        }
+        return ids;
+    }
+
+    protected String suggestIndex(final String id) {
+        final Suggester suggester = suggesters.get(id);
+        // same default as the suggest settings of the library
+        return suggester != null ? suggester.getIndex() : (id + ".suggest").toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> concreteIndices(final MetaData metaData, final String name) {
+        final AliasOrIndex aliasOrIndex = metaData.getAliasAndIndexLookup().get(name);
+        if (aliasOrIndex == null) {
+            return Collections.singleton(name);
+        }
+        final Set<String> indices = new HashSet<>();
+        for (final IndexMetaData indexMD : aliasOrIndex.getIndices()) {
+            indices.add(indexMD.getIndex());
+        }
+        return indices;
+    }
+
+    protected TimeValue getRefreshInterval(final String id) {
+        final MetaData metaData = clusterService.state().getMetaData();
+        long interval = -1;
+        for (final String index : concreteIndices(metaData, suggestIndex(id))) {
+            final IndexMetaData indexMD = metaData.index(index);
+            final TimeValue refreshInterval = indexMD != null ? indexMD.getSettings().getAsTime(INDEX_REFRESH_INTERVAL, null) : null;
+            interval = Math.max(interval, refreshInterval != null ? refreshInterval.millis() : DEFAULT_REFRESH_INTERVAL.millis());
+        }
+        return TimeValue.timeValueMillis(interval);
     }
 }
@@ -0,0 +1,45 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.concurrent.ExecutorService;
+
+import org.codelibs.fess.suggest.Suggester;
+import org.codelibs.fess.suggest.SuggesterBuilder;
+import org.codelibs.fess.suggest.analysis.SuggestAnalyzer;
+import org.codelibs.fess.suggest.converter.ReadingConverter;
+import org.codelibs.fess.suggest.normalizer.Normalizer;
+import org.codelibs.fess.suggest.settings.SuggestSettings;
+import org.elasticsearch.client.Client;
+
+/**
+ * Suggester whose indexer can write a batch of search words with one bulk request.
+ */
+public class FessSuggester extends Suggester {
+
+    public FessSuggester(final Client client, final SuggestSettings settings, final ReadingConverter readingConverter,
+            final Normalizer normalizer, final SuggestAnalyzer analyzer, final ExecutorService threadPool) {
+        super(client, settings, readingConverter, normalizer, analyzer, threadPool);
+    }
+
+    public static Builder fessBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public FessSuggestIndexer indexer() {
+        return createDefaultIndexer();
+    }
+
+    @Override
+    protected FessSuggestIndexer createDefaultIndexer() {
+        return new FessSuggestIndexer(client, index, type, readingConverter, normalizer, analyzer, suggestSettings, threadPool);
+    }
+
+    public static class Builder extends SuggesterBuilder {
+        @Override
+        public FessSuggester build(final Client client, final String id) {
+            // resolves the default settings, converter, normalizer, analyzer and thread pool
+            super.build(client, id);
+            return new FessSuggester(client, settings, readingConverter, normalizer, analyzer, threadPool);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.FilterClient;
+
+/**
+ * Client that holds search requests back until {@link #flush()} and sends
+ * them to Elasticsearch as a single multi-search request.
+ */
+public class MultiSearchClient extends FilterClient {
+    protected final List<SearchRequest> requests = new ArrayList<>();
+
+    protected final List<ActionListener<SearchResponse>> listeners = new ArrayList<>();
+
+    public MultiSearchClient(final Client in) {
+        super(in);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    protected <Request extends ActionRequest, Response extends ActionResponse, RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder>> void doExecute(
+            final Action<Request, Response, RequestBuilder> action, final Request request, final ActionListener<Response> listener) {
+        if (action == SearchAction.INSTANCE) {
+            synchronized (this) {
+                requests.add((SearchRequest) request);
+                listeners.add((ActionListener<SearchResponse>) listener);
+            }
+        } else {
+            super.doExecute(action, request, listener);
+        }
+    }
+
+    public synchronized int size() {
+        return requests.size();
+    }
+
+    public synchronized void flush() {
+        if (requests.isEmpty()) {
+            return;
+        }
+        final MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        requests.forEach(multiSearchRequest::add);
+        final List<ActionListener<SearchResponse>> targets = new ArrayList<>(listeners);
+        requests.clear();
+        listeners.clear();
+        in().multiSearch(multiSearchRequest, new ActionListener<MultiSearchResponse>() {
+            @Override
+            public void onResponse(final MultiSearchResponse response) {
+                final MultiSearchResponse.Item[] items = response.getResponses();
+                for (int i = 0; i < targets.size(); i++) {
+                    if (i >= items.length) {
+                        targets.get(i).onFailure(new ElasticsearchException("No response for the search request."));
+                    } else if (items[i].isFailure()) {
+                        final Throwable t = items[i].getFailure();
+                        targets.get(i).onFailure(t != null ? t : new ElasticsearchException(items[i].getFailureMessage()));
+                    } else {
+                        targets.get(i).onResponse(items[i].getResponse());
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable e) {
+                targets.forEach(listener -> listener.onFailure(e));
+            }
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.google.common.base.Strings;
+import org.codelibs.fess.suggest.request.popularwords.PopularWordsResponse;
+import org.elasticsearch.common.settings.Settings;
+
+public class PopularWordsSnapshot {
+    private static final String SEP_PARAM = ",";
+
+    protected final String name;
+    protected final String index;
+    protected final Set<String> tags;
+    protected final Set<String> roles;
+    protected final Set<String> fields;
+    protected final int size;
+    protected final int windowSize;
+    protected final int queryFreqThreshold;
+
+    protected volatile PopularWordsResponse response;
+
+    protected volatile long timestamp;
+
+    public PopularWordsSnapshot(final String name, final Settings settings, final int defaultWindowSize) {
+        this.name = name;
+        this.index = settings.get("index", name);
+        this.tags = toSet(settings.getAsArray("tags"));
+        this.roles = toSet(settings.getAsArray("roles"));
+        this.fields = toSet(settings.getAsArray("fields"));
+        this.size = settings.getAsInt("size", 10);
+        this.windowSize = settings.getAsInt("window_size", defaultWindowSize);
+        this.queryFreqThreshold = settings.getAsInt("query_freq", 10);
+    }
+
+    public boolean matches(final String index, final String tags, final String roles, final String fields, final int size,
+            final int windowSize, final int queryFreqThreshold) {
+        return this.index.equals(index)
+            && size <= this.size
+            && windowSize == this.windowSize
+            && queryFreqThreshold == this.queryFreqThreshold
+            && this.tags.equals(toSet(tags))
+            && this.roles.equals(toSet(roles))
+            && this.fields.equals(toSet(fields));
+    }
+
+    private static Set<String> toSet(final String value) {
+        if (Strings.isNullOrEmpty(value)) {
+            return new TreeSet<>();
+        }
+        return toSet(value.split(SEP_PARAM));
+    }
+
+    private static Set<String> toSet(final String[] values) {
+        final Set<String> set = new TreeSet<>(Arrays.asList(values));
+        set.remove("");
+        return set;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getQueryFreqThreshold() {
+        return queryFreqThreshold;
+    }
+
+    public PopularWordsResponse getResponse() {
+        return response;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setResponse(final PopularWordsResponse response) {
+        this.response = response;
+        this.timestamp = System.currentTimeMillis();
+    }
+}
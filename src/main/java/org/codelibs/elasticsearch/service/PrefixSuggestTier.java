@@ -0,0 +1,238 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.codelibs.fess.suggest.entity.SuggestItem;
+
+/**
+ * Immutable in-heap prefix index over the top items of a suggest index.
+ * Items are kept in descending order of their frequency score, which is the
+ * score of a suggest query apart from the prefix match weight, so a lookup
+ * is exact when enough candidates score above the lowest item of the tier.
+ */
+public class PrefixSuggestTier {
+    private static final String GUEST_ROLE = "_guest_";
+
+    private static final String HIRAGANA_PATTERN = "^[\\u3040-\\u309F]+$";
+
+    protected final String index;
+
+    protected final SuggestItem[] items;
+
+    protected final float[] scores;
+
+    protected final String[] keys;
+
+    protected final int[] ords;
+
+    protected final boolean complete;
+
+    protected final long timestamp = System.currentTimeMillis();
+
+    protected final long buildTime;
+
+    protected final long memorySize;
+
+    public PrefixSuggestTier(final String index, final List<SuggestItem> items, final float[] scores, final boolean complete,
+            final long buildTime) {
+        this.index = index;
+        this.items = items.toArray(new SuggestItem[items.size()]);
+        this.scores = scores;
+        this.complete = complete;
+        this.buildTime = buildTime;
+
+        final List<Entry> entries = new ArrayList<>();
+        long memory = 0;
+        for (int i = 0; i < this.items.length; i++) {
+            final SuggestItem item = this.items[i];
+            entries.add(new Entry(item.getText(), i));
+            final String[][] readings = item.getReadings();
+            if (readings != null && readings.length > 0 && readings[0] != null) {
+                for (final String reading : readings[0]) {
+                    entries.add(new Entry(reading, i));
+                }
+            }
+            memory += sizeOf(item);
+        }
+        final Entry[] sorted = entries.toArray(new Entry[entries.size()]);
+        Arrays.sort(sorted, (e1, e2) -> {
+            final int c = e1.key.compareTo(e2.key);
+            return c != 0 ? c : Integer.compare(e1.ord, e2.ord);
+        });
+        keys = new String[sorted.length];
+        ords = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            keys[i] = sorted[i].key;
+            ords[i] = sorted[i].ord;
+            memory += sizeOf(keys[i]);
+        }
+        memory += 16 + 4L * scores.length + 2 * (16 + 4L * keys.length) + 16 + 4L * this.items.length;
+        this.memorySize = memory;
+    }
+
+    /**
+     * Returns the top items for a single word query, or null if items outside
+     * of the tier could rank within the requested size.
+     */
+    public List<SuggestItem> lookup(final String query, final List<String> readings, final String[] tags, final String[] roles,
+            final String[] fields, final int size, final float prefixMatchWeight) {
+        if (size <= 0) {
+            return Collections.emptyList();
+        }
+        final BitSet matched = new BitSet(items.length);
+        collect(query, matched);
+        for (final String reading : readings) {
+            collect(reading, matched);
+        }
+
+        final float weight = query.matches(HIRAGANA_PATTERN) ? 1 : prefixMatchWeight;
+        final List<Integer> candidates = new ArrayList<>();
+        final List<Float> candidateScores = new ArrayList<>();
+        for (int ord = matched.nextSetBit(0); ord >= 0; ord = matched.nextSetBit(ord + 1)) {
+            final SuggestItem item = items[ord];
+            if (!containsAny(item.getTags(), tags) || !containsAny(item.getFields(), fields) || !containsRole(item.getRoles(), roles)) {
+                continue;
+            }
+            candidates.add(ord);
+            candidateScores.add(item.getText().startsWith(query) ? scores[ord] * weight : scores[ord]);
+        }
+        final Integer[] order = new Integer[candidates.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> Float.compare(candidateScores.get(i2), candidateScores.get(i1)));
+
+        if (!complete) {
+            if (order.length < size) {
+                return null;
+            }
+            final float minScore = scores.length > 0 ? scores[scores.length - 1] : 0;
+            if (candidateScores.get(order[size - 1]) < minScore * Math.max(weight, 1)) {
+                return null;
+            }
+        }
+
+        final List<SuggestItem> results = new ArrayList<>(Math.min(size, order.length));
+        for (int i = 0; i < order.length && i < size; i++) {
+            results.add(items[candidates.get(order[i])]);
+        }
+        return results;
+    }
+
+    private void collect(final String prefix, final BitSet matched) {
+        if (prefix == null || prefix.isEmpty()) {
+            return;
+        }
+        int pos = Arrays.binarySearch(keys, prefix);
+        if (pos < 0) {
+            pos = -pos - 1;
+        } else {
+            while (pos > 0 && keys[pos - 1].equals(prefix)) {
+                pos--;
+            }
+        }
+        for (; pos < keys.length && keys[pos].startsWith(prefix); pos++) {
+            matched.set(ords[pos]);
+        }
+    }
+
+    private static boolean containsAny(final String[] values, final String[] filters) {
+        if (filters == null || filters.length == 0) {
+            return true;
+        }
+        if (values == null) {
+            return false;
+        }
+        for (final String value : values) {
+            for (final String filter : filters) {
+                if (value.equals(filter)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsRole(final String[] values, final String[] roles) {
+        if (values == null) {
+            return false;
+        }
+        for (final String value : values) {
+            if (GUEST_ROLE.equals(value)) {
+                return true;
+            }
+        }
+        return roles != null && roles.length > 0 && containsAny(values, roles);
+    }
+
+    private static long sizeOf(final SuggestItem item) {
+        long size = 96 + sizeOf(item.getText()) + sizeOf(item.getTags()) + sizeOf(item.getRoles()) + sizeOf(item.getFields())
+            + sizeOf(item.getLanguages());
+        final String[][] readings = item.getReadings();
+        if (readings != null) {
+            size += 16 + 4L * readings.length;
+            for (final String[] reading : readings) {
+                size += sizeOf(reading);
+            }
+        }
+        return size;
+    }
+
+    private static long sizeOf(final String[] values) {
+        if (values == null) {
+            return 0;
+        }
+        long size = 16 + 4L * values.length;
+        for (final String value : values) {
+            size += sizeOf(value);
+        }
+        return size;
+    }
+
+    private static long sizeOf(final String value) {
+        return value != null ? 40 + 2L * value.length() : 0;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public int getItemCount() {
+        return items.length;
+    }
+
+    public int getKeyCount() {
+        return keys.length;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    public long getMemorySize() {
+        return memorySize;
+    }
+
+    private static class Entry {
+        private final String key;
+
+        private final int ord;
+
+        private Entry(final String key, final int ord) {
+            this.key = key;
+            this.ord = ord;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codelibs.fess.suggest.constants.FieldNames;
+import org.codelibs.fess.suggest.entity.SuggestItem;
+import org.codelibs.fess.suggest.request.suggest.SuggestRequest;
+import org.codelibs.fess.suggest.request.suggest.SuggestResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+
+/**
+ * Suggest request that keeps the score of each returned item, so responses
+ * of several indices can be merged. An instance is used for one execution.
+ */
+public class ScoredSuggestRequest extends SuggestRequest {
+    protected final Map<String, Float> scores = new HashMap<>();
+
+    protected float maxScore;
+
+    @Override
+    protected SuggestResponse createResponse(final SearchResponse searchResponse) {
+        for (final SearchHit hit : searchResponse.getHits().getHits()) {
+            final Object text = hit.sourceAsMap().get(FieldNames.TEXT);
+            if (text != null) {
+                scores.merge(text.toString(), hit.getScore(), Math::max);
+            }
+            maxScore = Math.max(maxScore, hit.getScore());
+        }
+        return super.createResponse(searchResponse);
+    }
+
+    public float getScore(final SuggestItem item) {
+        final Float score = scores.get(item.getText());
+        return score != null ? score : 0f;
+    }
+
+    public float getMaxScore() {
+        return maxScore;
+    }
+}
@@ -0,0 +1,64 @@
+package org.codelibs.elasticsearch.service;
+
+public class SearchWord {
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    protected final String key;
+    protected final String keyword;
+    protected final String[] fields;
+    protected final String[] tags;
+    protected final String[] roles;
+    protected final String[] langs;
+    protected int freq;
+    protected int records = 1;
+
+    public SearchWord(final String keyword, final String[] fields, final String[] tags, final String[] roles,
+            final String[] langs, final int freq) {
+        this.keyword = keyword;
+        this.fields = fields;
+        this.tags = tags;
+        this.roles = roles;
+        this.langs = langs;
+        this.freq = freq;
+        this.key = new StringBuilder(keyword).append(KEY_SEPARATOR).append(String.join(",", fields))
+            .append(KEY_SEPARATOR).append(String.join(",", tags)).append(KEY_SEPARATOR).append(String.join(",", roles))
+            .append(KEY_SEPARATOR).append(String.join(",", langs)).toString();
+    }
+
+    public void merge(final SearchWord other) {
+        freq += other.freq;
+        records += other.records;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public String[] getFields() {
+        return fields;
+    }
+
+    public String[] getTags() {
+        return tags;
+    }
+
+    public String[] getRoles() {
+        return roles;
+    }
+
+    public String[] getLangs() {
+        return langs;
+    }
+
+    public int getFreq() {
+        return freq;
+    }
+
+    public int getRecords() {
+        return records;
+    }
+}
@@ -0,0 +1,91 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+public class SearchWordBuffer {
+    protected final String index;
+
+    protected final int capacity;
+
+    protected final int flushSize;
+
+    protected final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    protected Map<String, SearchWord> searchWords = new LinkedHashMap<>();
+
+    public SearchWordBuffer(final String index, final int capacity, final int flushSize) {
+        this.index = index;
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+    }
+
+    /**
+     * Adds the search word to this buffer, merging it with a buffered one if any.
+     *
+     * @return true if the buffer reached the flush size
+     */
+    public synchronized boolean add(final SearchWord searchWord) {
+        final SearchWord current = searchWords.get(searchWord.getKey());
+        if (current != null) {
+            current.merge(searchWord);
+        } else if (searchWords.size() >= capacity) {
+            throw new EsRejectedExecutionException("Suggest update buffer for " + index + " is full: capacity = " + capacity);
+        } else {
+            searchWords.put(searchWord.getKey(), searchWord);
+        }
+        return searchWords.size() >= flushSize;
+    }
+
+    public synchronized List<SearchWord> drain() {
+        if (searchWords.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final List<SearchWord> drained = new ArrayList<>(searchWords.values());
+        searchWords = new LinkedHashMap<>();
+        return drained;
+    }
+
+    public synchronized int size() {
+        return searchWords.size();
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public boolean startFlush() {
+        return flushing.compareAndSet(false, true);
+    }
+
+    /**
+     * Waits until a running flush finishes and starts a new one.
+     *
+     * @return false if the flush did not finish within the timeout
+     */
+    public boolean awaitFlush(final long timeoutMillis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (flushing) {
+            while (!flushing.compareAndSet(false, true)) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                flushing.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    public void finishFlush() {
+        flushing.set(false);
+        synchronized (flushing) {
+            flushing.notifyAll();
+        }
+    }
+}
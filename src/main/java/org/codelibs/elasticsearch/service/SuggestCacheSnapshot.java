@@ -0,0 +1,220 @@
+package org.codelibs.elasticsearch.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Binary snapshot of the hottest cached suggest responses and the resolved
+ * per-index settings their cache keys depend on.
+ * Each response keeps the time it was cached and the UUIDs of the suggest
+ * index it was read from, so that it expires on time and is dropped when
+ * the suggest index has been recreated.
+ * The file ends with a CRC32 of its contents and is rejected when the magic,
+ * the format version, the Elasticsearch version or the checksum differ.
+ */
+public class SuggestCacheSnapshot {
+    private static final int MAGIC = 0x46535343; // FSSC
+
+    private static final int FORMAT_VERSION = 2;
+
+    protected final String clusterName;
+
+    protected final long timestamp;
+
+    protected final Map<String, Float> prefixMatchWeights;
+
+    protected final Map<String, TimeValue> suggestTimeouts;
+
+    protected final List<Entry> entries;
+
+    public SuggestCacheSnapshot(final String clusterName, final long timestamp, final Map<String, Float> prefixMatchWeights,
+            final Map<String, TimeValue> suggestTimeouts, final List<Entry> entries) {
+        this.clusterName = clusterName;
+        this.timestamp = timestamp;
+        this.prefixMatchWeights = prefixMatchWeights;
+        this.suggestTimeouts = suggestTimeouts;
+        this.entries = entries;
+    }
+
+    public void write(final Path file) throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(Version.CURRENT.id);
+        out.writeString(clusterName);
+        out.writeLong(timestamp);
+        out.writeVInt(prefixMatchWeights.size());
+        for (final Map.Entry<String, Float> entry : prefixMatchWeights.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeFloat(entry.getValue());
+        }
+        out.writeVInt(suggestTimeouts.size());
+        for (final Map.Entry<String, TimeValue> entry : suggestTimeouts.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeLong(entry.getValue().millis());
+        }
+        out.writeVInt(entries.size());
+        for (final Entry entry : entries) {
+            final SuggestResponseCache.Key key = entry.key;
+            out.writeString(key.index);
+            out.writeString(key.query);
+            out.writeVInt(key.size);
+            out.writeString(key.tags);
+            out.writeString(key.roles);
+            out.writeString(key.fields);
+            out.writeFloat(key.prefixMatchWeight);
+            out.writeString(key.output);
+            out.writeString(entry.response.contentType);
+            out.writeByteArray(entry.response.content);
+            out.writeLong(entry.response.timestamp);
+            out.writeVLong(entry.hitCount);
+            out.writeString(entry.indexUuid);
+        }
+        final byte[] body = out.bytes().toBytes();
+        final CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        Files.createDirectories(file.getParent());
+        final Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+            os.write(body);
+            os.writeLong(crc.getValue());
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static SuggestCacheSnapshot read(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long length = channel.size();
+            if (length < 20 || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot length: " + length);
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a cache snapshot.");
+            }
+            final int formatVersion = buffer.getInt(4);
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Incompatible snapshot format: " + formatVersion);
+            }
+            final int esVersion = buffer.getInt(8);
+            if (esVersion != Version.CURRENT.id) {
+                throw new IOException("Incompatible Elasticsearch version: " + Version.fromId(esVersion));
+            }
+            final CRC32 crc = new CRC32();
+            final ByteBuffer body = buffer.duplicate();
+            body.limit((int) length - 8);
+            crc.update(body);
+            if (crc.getValue() != buffer.getLong((int) length - 8)) {
+                throw new IOException("Checksum mismatch.");
+            }
+
+            final ByteBuffer data = buffer.duplicate();
+            data.position(12);
+            data.limit((int) length - 8);
+            final StreamInput in = new ByteBufferStreamInput(data);
+            final String clusterName = in.readString();
+            final long timestamp = in.readLong();
+            int size = in.readVInt();
+            final Map<String, Float> prefixMatchWeights = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                prefixMatchWeights.put(in.readString(), in.readFloat());
+            }
+            size = in.readVInt();
+            final Map<String, TimeValue> suggestTimeouts = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                suggestTimeouts.put(in.readString(), TimeValue.timeValueMillis(in.readLong()));
+            }
+            size = in.readVInt();
+            final List<Entry> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final SuggestResponseCache.Key key = new SuggestResponseCache.Key(in.readString(), in.readString(), in.readVInt(),
+                    in.readString(), in.readString(), in.readString(), in.readFloat(), in.readString());
+                final SuggestResponseCache.CachedResponse response = new SuggestResponseCache.CachedResponse(in.readString(),
+                    in.readByteArray(), in.readLong());
+                final long hitCount = in.readVLong();
+                response.hits.inc(hitCount);
+                entries.add(new Entry(key, response, hitCount, in.readString()));
+            }
+            return new SuggestCacheSnapshot(clusterName, timestamp, prefixMatchWeights, suggestTimeouts, entries);
+        }
+    }
+
+    public String getClusterName() {
+        return clusterName;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Map<String, Float> getPrefixMatchWeights() {
+        return Collections.unmodifiableMap(prefixMatchWeights);
+    }
+
+    public Map<String, TimeValue> getSuggestTimeouts() {
+        return Collections.unmodifiableMap(suggestTimeouts);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public static class Entry {
+        protected final SuggestResponseCache.Key key;
+        protected final SuggestResponseCache.CachedResponse response;
+        protected final long hitCount;
+        protected final String indexUuid;
+
+        public Entry(final SuggestResponseCache.Key key, final SuggestResponseCache.CachedResponse response, final long hitCount) {
+            this(key, response, hitCount, "");
+        }
+
+        /**
+         * @param indexUuid the UUIDs of the concrete suggest indices of the key, or an empty string
+         */
+        public Entry(final SuggestResponseCache.Key key, final SuggestResponseCache.CachedResponse response, final long hitCount,
+                final String indexUuid) {
+            this.key = key;
+            this.response = response;
+            this.hitCount = hitCount;
+            this.indexUuid = indexUuid;
+        }
+
+        public SuggestResponseCache.Key getKey() {
+            return key;
+        }
+
+        public SuggestResponseCache.CachedResponse getResponse() {
+            return response;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public String getIndexUuid() {
+            return indexUuid;
+        }
+    }
+}
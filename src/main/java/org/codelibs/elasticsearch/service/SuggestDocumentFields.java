@@ -0,0 +1,94 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.codelibs.fess.suggest.Suggester;
+import org.codelibs.fess.suggest.settings.SuggestSettings;
+
+/**
+ * Node-local copy of the document settings of a suggester: the supported
+ * fields and the names of the tag, role and language fields of a document.
+ * Reading them from the suggester settings costs a request to the settings index.
+ */
+public class SuggestDocumentFields {
+    public static final String SUPPORTED_FIELDS = "supportedFields";
+
+    public static final String TAG_FIELD_NAME = "tagFieldName";
+
+    public static final String ROLE_FIELD_NAME = "roleFieldName";
+
+    public static final String LANG_FIELD_NAME = "langFieldName";
+
+    protected final Set<String> supportedFields;
+
+    protected final String tagFieldName;
+
+    protected final String roleFieldName;
+
+    protected final String langFieldName;
+
+    protected SuggestDocumentFields(final Set<String> supportedFields, final String tagFieldName, final String roleFieldName,
+            final String langFieldName) {
+        this.supportedFields = Collections.unmodifiableSet(supportedFields);
+        this.tagFieldName = tagFieldName;
+        this.roleFieldName = roleFieldName;
+        this.langFieldName = langFieldName;
+    }
+
+    public static SuggestDocumentFields load(final Suggester suggester) {
+        final SuggestSettings settings = suggester.settings();
+        return new SuggestDocumentFields(new LinkedHashSet<>(Arrays.asList(settings.array().get(SUPPORTED_FIELDS))),
+            settings.getAsString(TAG_FIELD_NAME, "label"), settings.getAsString(ROLE_FIELD_NAME, "role"),
+            settings.getAsString(LANG_FIELD_NAME, "lang"));
+    }
+
+    public boolean supports(final String field) {
+        return supportedFields.contains(field);
+    }
+
+    public boolean supportsAll(final String[] fields) {
+        for (final String field : fields) {
+            if (!supportedFields.contains(field)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public SuggestDocumentFields withFields(final String[] fields) {
+        final Set<String> newFields = new LinkedHashSet<>(supportedFields);
+        newFields.addAll(Arrays.asList(fields));
+        return new SuggestDocumentFields(newFields, tagFieldName, roleFieldName, langFieldName);
+    }
+
+    public String[] getSupportedFields() {
+        return supportedFields.toArray(new String[supportedFields.size()]);
+    }
+
+    /**
+     * Creates a document with the content in each field. A document has a single
+     * language, so only the first of langs is used.
+     */
+    public Map<String, Object> newDocument(final Object content, final String[] fields, final String[] tags, final String[] roles,
+            final String[] langs) {
+        final Map<String, Object> doc = new HashMap<>();
+        for (final String field : fields) {
+            doc.put(field, content);
+        }
+        if (tags != null && tags.length > 0) {
+            doc.put(tagFieldName, tags);
+        }
+        if (roles != null && roles.length > 0) {
+            doc.put(roleFieldName, roles);
+        }
+        if (langs != null && langs.length > 0) {
+            doc.put(langFieldName, langs[0]);
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,232 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import org.codelibs.fess.suggest.entity.SuggestItem;
+import org.codelibs.fess.suggest.request.suggest.SuggestResponse;
+
+/**
+ * Merges the responses of parallel suggest requests against the backing
+ * indices of an alias into the top items by boosted score.
+ * The merged response is sent when all indices responded, or as soon as the
+ * heap is full and no pending index has ever returned a boosted score above
+ * the lowest score in the heap.
+ * The early return is a heuristic: the highest score of an index is taken
+ * over all queries, so a pending index can still hold a hit that would have
+ * ranked for this query once the scores of its data have grown.
+ */
+public class SuggestFanOut {
+    protected final String index;
+
+    protected final String query;
+
+    protected final int size;
+
+    protected final Map<String, Float> boosts;
+
+    protected final Map<String, Float> maxScores;
+
+    protected final Consumer<SuggestResponse> success;
+
+    protected final Consumer<Throwable> error;
+
+    protected final long startTime = System.currentTimeMillis();
+
+    protected final PriorityQueue<Hit> heap;
+
+    protected final Map<String, Hit> hits = new HashMap<>();
+
+    protected final List<String> pending;
+
+    protected final List<String> failed = new ArrayList<>();
+
+    protected long total;
+
+    protected int responded;
+
+    protected Throwable failure;
+
+    protected boolean done;
+
+    protected boolean timedOut;
+
+    /**
+     * @param boosts the boost of each backing index
+     * @param maxScores the highest unboosted score seen for each backing index, shared between requests
+     */
+    public SuggestFanOut(final String index, final String query, final int size, final Map<String, Float> boosts,
+            final Map<String, Float> maxScores, final Consumer<SuggestResponse> success, final Consumer<Throwable> error) {
+        this.index = index;
+        this.query = query;
+        this.size = size;
+        this.boosts = boosts;
+        this.maxScores = maxScores;
+        this.success = success;
+        this.error = error;
+        this.heap = new PriorityQueue<>(size + 1, (h1, h2) -> Float.compare(h1.score, h2.score));
+        this.pending = new ArrayList<>(boosts.keySet());
+    }
+
+    public void onResponse(final String target, final SuggestResponse response, final ScoredSuggestRequest request) {
+        maxScores.merge(target, request.getMaxScore(), Math::max);
+        final SuggestResponse merged;
+        synchronized (this) {
+            pending.remove(target);
+            if (done) {
+                return;
+            }
+            responded++;
+            total += response.getTotal();
+            final float boost = boosts.get(target);
+            for (final SuggestItem item : response.getItems()) {
+                offer(item, request.getScore(item) * boost);
+            }
+            if (!pending.isEmpty() && !canReturnEarly()) {
+                return;
+            }
+            done = true;
+            merged = merge();
+        }
+        success.accept(merged);
+    }
+
+    public void onFailure(final String target, final Throwable t) {
+        SuggestResponse merged = null;
+        synchronized (this) {
+            pending.remove(target);
+            if (done) {
+                return;
+            }
+            failed.add(target);
+            if (failure == null) {
+                failure = t;
+            }
+            if (!pending.isEmpty() && (responded == 0 || !canReturnEarly())) {
+                return;
+            }
+            done = true;
+            if (responded > 0) {
+                merged = merge();
+            }
+        }
+        if (merged != null) {
+            success.accept(merged);
+        } else {
+            error.accept(failure);
+        }
+    }
+
+    /**
+     * Completes this fan-out with the responses received so far and reports the pending indices as failed.
+     *
+     * @return false if this fan-out is completed or no index has responded yet
+     */
+    public boolean timeout() {
+        final SuggestResponse merged;
+        synchronized (this) {
+            if (done || responded == 0) {
+                return false;
+            }
+            done = true;
+            timedOut = true;
+            failed.addAll(pending);
+            merged = merge();
+        }
+        success.accept(merged);
+        return true;
+    }
+
+    private void offer(final SuggestItem item, final float score) {
+        if (size <= 0) {
+            return;
+        }
+        final Hit current = hits.get(item.getText());
+        if (current != null) {
+            if (current.score >= score) {
+                return;
+            }
+            heap.remove(current);
+            hits.remove(current.item.getText());
+        } else if (heap.size() >= size && heap.peek().score >= score) {
+            return;
+        }
+        final Hit hit = new Hit(item, score);
+        heap.add(hit);
+        hits.put(item.getText(), hit);
+        if (heap.size() > size) {
+            hits.remove(heap.poll().item.getText());
+        }
+    }
+
+    private boolean canReturnEarly() {
+        if (heap.size() < size) {
+            return false;
+        }
+        if (heap.isEmpty()) {
+            return true;
+        }
+        final float minScore = heap.peek().score;
+        for (final String target : pending) {
+            final Float maxScore = maxScores.get(target);
+            if (maxScore == null || maxScore * boosts.get(target) > minScore) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MergedResponse merge() {
+        final List<Hit> sorted = new ArrayList<>(heap);
+        sorted.sort((h1, h2) -> Float.compare(h2.score, h1.score));
+        final List<SuggestItem> items = new ArrayList<>(sorted.size());
+        for (final Hit hit : sorted) {
+            items.add(hit.item);
+        }
+        return new MergedResponse(index, System.currentTimeMillis() - startTime, Collections.singletonList(query), total, items,
+            new ArrayList<>(failed), timedOut);
+    }
+
+    /**
+     * Merged response, partial when some of the backing indices failed or did not respond before the timeout.
+     */
+    public static class MergedResponse extends SuggestResponse {
+        protected final List<String> failedIndices;
+
+        protected final boolean timedOut;
+
+        protected MergedResponse(final String index, final long tookMs, final List<String> words, final long total,
+                final List<SuggestItem> items, final List<String> failedIndices, final boolean timedOut) {
+            super(index, tookMs, words, total, items);
+            this.failedIndices = failedIndices;
+            this.timedOut = timedOut;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public boolean isPartial() {
+            return !failedIndices.isEmpty();
+        }
+
+        public List<String> getFailedIndices() {
+            return failedIndices;
+        }
+    }
+
+    protected static class Hit {
+        protected final SuggestItem item;
+        protected final float score;
+
+        protected Hit(final SuggestItem item, final float score) {
+            this.item = item;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.codelibs.elasticsearch.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ * Request counters and latency histograms per endpoint and index.
+ * Latencies are recorded in microseconds.
+ * Indices beyond the maximum number per endpoint are recorded as {@link #OTHER_INDICES}.
+ */
+public class SuggestMetrics {
+    public static final String ENDPOINT_SUGGEST = "suggest";
+    public static final String ENDPOINT_PWORDS = "pwords";
+    public static final String ENDPOINT_UPDATE = "update";
+    public static final String ENDPOINT_BULK = "bulk";
+    public static final String ENDPOINT_CREATE = "create";
+
+    public static final String UNKNOWN_INDEX = "_na";
+    public static final String OTHER_INDICES = "_other";
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    protected final Map<String, Map<String, Stats>> stats = new ConcurrentHashMap<>();
+
+    protected final int maxIndices;
+
+    public SuggestMetrics(final int maxIndices) {
+        this.maxIndices = maxIndices;
+    }
+
+    public void record(final String endpoint, final String index, final long queueNanos, final long backendNanos,
+            final long serializationNanos) {
+        final Stats s = stats(endpoint, index);
+        s.count.inc();
+        s.queue.recordValue(toMicros(queueNanos));
+        s.backend.recordValue(toMicros(backendNanos));
+        s.serialization.recordValue(toMicros(serializationNanos));
+    }
+
+    public void recordError(final String endpoint, final String index) {
+        stats(endpoint, index).errors.inc();
+    }
+
+    public void recordTimeout(final String endpoint, final String index) {
+        stats(endpoint, index).timeouts.inc();
+    }
+
+    protected Stats stats(final String endpoint, final String index) {
+        final Map<String, Stats> indices = stats.computeIfAbsent(endpoint, key -> new ConcurrentHashMap<>());
+        final String name = index != null ? index : UNKNOWN_INDEX;
+        final Stats s = indices.get(name);
+        if (s != null) {
+            return s;
+        }
+        // concurrent misses may exceed the maximum by a few entries
+        return indices.computeIfAbsent(indices.size() < maxIndices ? name : OTHER_INDICES, key -> new Stats());
+    }
+
+    /**
+     * Removes the statistics of the indices which no longer exist.
+     */
+    public void retainIndices(final Predicate<String> exists) {
+        for (final Map<String, Stats> indices : stats.values()) {
+            indices.keySet().removeIf(index -> !UNKNOWN_INDEX.equals(index) && !OTHER_INDICES.equals(index) && !exists.test(index));
+        }
+    }
+
+    private static long toMicros(final long nanos) {
+        return nanos > 0 ? TimeUnit.NANOSECONDS.toMicros(nanos) : 0;
+    }
+
+    public Map<String, Map<String, Snapshot>> snapshot() {
+        final Map<String, Map<String, Snapshot>> snapshot = new HashMap<>();
+        for (final Map.Entry<String, Map<String, Stats>> endpoint : stats.entrySet()) {
+            final Map<String, Snapshot> indices = new HashMap<>();
+            for (final Map.Entry<String, Stats> index : endpoint.getValue().entrySet()) {
+                indices.put(index.getKey(), index.getValue().snapshot());
+            }
+            snapshot.put(endpoint.getKey(), indices);
+        }
+        return snapshot;
+    }
+
+    public static void merge(final Map<String, Map<String, Snapshot>> target, final Map<String, Map<String, Snapshot>> source) {
+        for (final Map.Entry<String, Map<String, Snapshot>> endpoint : source.entrySet()) {
+            final Map<String, Snapshot> indices = target.computeIfAbsent(endpoint.getKey(), key -> new HashMap<>());
+            for (final Map.Entry<String, Snapshot> index : endpoint.getValue().entrySet()) {
+                indices.computeIfAbsent(index.getKey(), key -> new Snapshot()).merge(index.getValue());
+            }
+        }
+    }
+
+    public static void writeTo(final StreamOutput out, final Map<String, Map<String, Snapshot>> snapshot) throws IOException {
+        out.writeVInt(snapshot.size());
+        for (final Map.Entry<String, Map<String, Snapshot>> endpoint : snapshot.entrySet()) {
+            out.writeString(endpoint.getKey());
+            out.writeVInt(endpoint.getValue().size());
+            for (final Map.Entry<String, Snapshot> index : endpoint.getValue().entrySet()) {
+                out.writeString(index.getKey());
+                index.getValue().writeTo(out);
+            }
+        }
+    }
+
+    public static Map<String, Map<String, Snapshot>> readFrom(final StreamInput in) throws IOException {
+        final Map<String, Map<String, Snapshot>> snapshot = new HashMap<>();
+        final int endpoints = in.readVInt();
+        for (int i = 0; i < endpoints; i++) {
+            final String endpoint = in.readString();
+            final Map<String, Snapshot> indices = new HashMap<>();
+            final int size = in.readVInt();
+            for (int j = 0; j < size; j++) {
+                final String index = in.readString();
+                final Snapshot s = new Snapshot();
+                s.readFrom(in);
+                indices.put(index, s);
+            }
+            snapshot.put(endpoint, indices);
+        }
+        return snapshot;
+    }
+
+    public static void toXContent(final XContentBuilder builder, final Map<String, Map<String, Snapshot>> snapshot) throws IOException {
+        for (final Map.Entry<String, Map<String, Snapshot>> endpoint : snapshot.entrySet()) {
+            builder.startObject(endpoint.getKey());
+            for (final Map.Entry<String, Snapshot> index : endpoint.getValue().entrySet()) {
+                builder.startObject(index.getKey());
+                index.getValue().toXContent(builder);
+                builder.endObject();
+            }
+            builder.endObject();
+        }
+    }
+
+    protected static class Stats {
+        protected final CounterMetric count = new CounterMetric();
+        protected final CounterMetric errors = new CounterMetric();
+        protected final CounterMetric timeouts = new CounterMetric();
+        protected final ConcurrentHistogram queue = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        protected final ConcurrentHistogram backend = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        protected final ConcurrentHistogram serialization = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+        protected Snapshot snapshot() {
+            final Snapshot snapshot = new Snapshot();
+            snapshot.count = count.count();
+            snapshot.errors = errors.count();
+            snapshot.timeouts = timeouts.count();
+            snapshot.queue.add(queue);
+            snapshot.backend.add(backend);
+            snapshot.serialization.add(serialization);
+            return snapshot;
+        }
+    }
+
+    public static class Snapshot {
+        protected long count;
+        protected long errors;
+        protected long timeouts;
+        protected Histogram queue = new Histogram(SIGNIFICANT_DIGITS);
+        protected Histogram backend = new Histogram(SIGNIFICANT_DIGITS);
+        protected Histogram serialization = new Histogram(SIGNIFICANT_DIGITS);
+
+        public void merge(final Snapshot other) {
+            count += other.count;
+            errors += other.errors;
+            timeouts += other.timeouts;
+            queue.add(other.queue);
+            backend.add(other.backend);
+            serialization.add(other.serialization);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public Histogram getQueue() {
+            return queue;
+        }
+
+        public Histogram getBackend() {
+            return backend;
+        }
+
+        public Histogram getSerialization() {
+            return serialization;
+        }
+
+        protected void writeTo(final StreamOutput out) throws IOException {
+            out.writeVLong(count);
+            out.writeVLong(errors);
+            out.writeVLong(timeouts);
+            writeHistogram(out, queue);
+            writeHistogram(out, backend);
+            writeHistogram(out, serialization);
+        }
+
+        protected void readFrom(final StreamInput in) throws IOException {
+            count = in.readVLong();
+            errors = in.readVLong();
+            timeouts = in.readVLong();
+            queue = readHistogram(in);
+            backend = readHistogram(in);
+            serialization = readHistogram(in);
+        }
+
+        protected void toXContent(final XContentBuilder builder) throws IOException {
+            builder.field("count", count);
+            builder.field("errors", errors);
+            builder.field("timeouts", timeouts);
+            toXContent(builder, "queue", queue);
+            toXContent(builder, "backend", backend);
+            toXContent(builder, "serialization", serialization);
+        }
+
+        private static void toXContent(final XContentBuilder builder, final String name, final AbstractHistogram histogram)
+                throws IOException {
+            builder.startObject(name);
+            builder.field("mean_micros", histogram.getTotalCount() > 0 ? histogram.getMean() : 0d);
+            builder.field("p50_micros", histogram.getValueAtPercentile(50));
+            builder.field("p90_micros", histogram.getValueAtPercentile(90));
+            builder.field("p99_micros", histogram.getValueAtPercentile(99));
+            builder.field("max_micros", histogram.getMaxValue());
+            builder.endObject();
+        }
+
+        private static void writeHistogram(final StreamOutput out, final Histogram histogram) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            final int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            out.writeByteArray(Arrays.copyOf(buffer.array(), length));
+        }
+
+        private static Histogram readHistogram(final StreamInput in) throws IOException {
+            final byte[] bytes = in.readByteArray();
+            try {
+                final Histogram histogram = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0);
+                histogram.setAutoResize(true);
+                return histogram;
+            } catch (final DataFormatException e) {
+                throw new IOException("Failed to read a latency histogram.", e);
+            }
+        }
+    }
+}
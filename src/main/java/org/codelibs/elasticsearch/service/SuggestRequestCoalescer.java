@@ -0,0 +1,85 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.metrics.CounterMetric;
+
+/**
+ * Lets concurrent identical suggest requests share one in-flight backend call.
+ */
+public class SuggestRequestCoalescer {
+    protected final Map<SuggestResponseCache.Key, InFlight> inFlights = new ConcurrentHashMap<>();
+
+    protected final CounterMetric requestCount = new CounterMetric();
+
+    protected final CounterMetric coalescedCount = new CounterMetric();
+
+    /**
+     * Registers the listener for the request.
+     *
+     * @return true if the caller has to execute the request and call {@link #complete} or {@link #fail}
+     */
+    public boolean join(final SuggestResponseCache.Key key, final ActionListener<SuggestResponseCache.CachedResponse> listener) {
+        requestCount.inc();
+        while (true) {
+            final InFlight created = new InFlight();
+            created.listeners.add(listener);
+            final InFlight inFlight = inFlights.putIfAbsent(key, created);
+            if (inFlight == null) {
+                return true;
+            }
+            synchronized (inFlight) {
+                if (!inFlight.done) {
+                    inFlight.listeners.add(listener);
+                    coalescedCount.inc();
+                    return false;
+                }
+            }
+        }
+    }
+
+    public void complete(final SuggestResponseCache.Key key, final SuggestResponseCache.CachedResponse response) {
+        for (final ActionListener<SuggestResponseCache.CachedResponse> listener : finish(key)) {
+            listener.onResponse(response);
+        }
+    }
+
+    public void fail(final SuggestResponseCache.Key key, final Throwable t) {
+        for (final ActionListener<SuggestResponseCache.CachedResponse> listener : finish(key)) {
+            listener.onFailure(t);
+        }
+    }
+
+    protected List<ActionListener<SuggestResponseCache.CachedResponse>> finish(final SuggestResponseCache.Key key) {
+        final InFlight inFlight = inFlights.remove(key);
+        if (inFlight == null) {
+            return new ArrayList<>();
+        }
+        synchronized (inFlight) {
+            inFlight.done = true;
+            return inFlight.listeners;
+        }
+    }
+
+    public int getInFlightCount() {
+        return inFlights.size();
+    }
+
+    public long getRequestCount() {
+        return requestCount.count();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.count();
+    }
+
+    protected static class InFlight {
+        protected final List<ActionListener<SuggestResponseCache.CachedResponse>> listeners = new ArrayList<>();
+
+        protected boolean done = false;
+    }
+}
@@ -0,0 +1,218 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.metrics.CounterMetric;
+
+public class SuggestResponseCache {
+    private static final String SEP_PARAM = ",";
+
+    protected final Cache<Key, CachedResponse> cache;
+
+    protected final long expireMillis;
+
+    public SuggestResponseCache(final long maxSize, final long expireMillis) {
+        this.expireMillis = expireMillis;
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(expireMillis, TimeUnit.MILLISECONDS)
+            .recordStats()
+            .build();
+    }
+
+    public CachedResponse get(final Key key) {
+        final CachedResponse response = cache.getIfPresent(key);
+        if (response == null) {
+            return null;
+        }
+        // responses restored from a snapshot keep the time they were written
+        if (isExpired(response, System.currentTimeMillis())) {
+            cache.invalidate(key);
+            return null;
+        }
+        response.hits.inc();
+        return response;
+    }
+
+    protected boolean isExpired(final CachedResponse response, final long now) {
+        return now - response.timestamp >= expireMillis;
+    }
+
+    public void put(final Key key, final String contentType, final BytesReference content) {
+        cache.put(key, new CachedResponse(contentType, content.toBytes()));
+    }
+
+    public void put(final Key key, final CachedResponse response) {
+        cache.put(key, response);
+    }
+
+    public void invalidate(final Key key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidate(final String index) {
+        cache.asMap().keySet().removeIf(key -> key.index.equals(index));
+    }
+
+    /**
+     * Returns the index names of the cached responses.
+     */
+    public Set<String> indices() {
+        final Set<String> indices = new HashSet<>();
+        for (final Key key : cache.asMap().keySet()) {
+            indices.add(key.index);
+        }
+        return indices;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns the cached responses with the most hits, in descending order.
+     */
+    public List<SuggestCacheSnapshot.Entry> hottest(final int size) {
+        final List<SuggestCacheSnapshot.Entry> entries = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        for (final Map.Entry<Key, CachedResponse> entry : cache.asMap().entrySet()) {
+            if (isExpired(entry.getValue(), now)) {
+                continue;
+            }
+            entries.add(new SuggestCacheSnapshot.Entry(entry.getKey(), entry.getValue(), entry.getValue().getHitCount()));
+        }
+        entries.sort((e1, e2) -> Long.compare(e2.hitCount, e1.hitCount));
+        return entries.size() > size ? new ArrayList<>(entries.subList(0, size)) : entries;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public static Key key(final String index, final String query, final int size, final String tags, final String roles,
+            final String fields, final float prefixMatchWeight, final String output) {
+        return new Key(index, query, size, normalize(tags), normalize(roles), normalize(fields), prefixMatchWeight,
+            output != null ? output : "");
+    }
+
+    private static String normalize(final String value) {
+        if (Strings.isNullOrEmpty(value)) {
+            return "";
+        }
+        final TreeSet<String> values = new TreeSet<>();
+        for (final String v : value.split(SEP_PARAM)) {
+            if (v.length() > 0) {
+                values.add(v);
+            }
+        }
+        return String.join(SEP_PARAM, values);
+    }
+
+    public static class Key {
+        protected final String index;
+        protected final String query;
+        protected final int size;
+        protected final String tags;
+        protected final String roles;
+        protected final String fields;
+        protected final float prefixMatchWeight;
+        protected final String output;
+        protected final int hashCode;
+
+        protected Key(final String index, final String query, final int size, final String tags, final String roles,
+                final String fields, final float prefixMatchWeight, final String output) {
+            this.index = index;
+            this.query = query;
+            this.size = size;
+            this.tags = tags;
+            this.roles = roles;
+            this.fields = fields;
+            this.prefixMatchWeight = prefixMatchWeight;
+            this.output = output;
+            this.hashCode = Objects.hash(index, query, size, tags, roles, fields, prefixMatchWeight, output);
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return size == other.size
+                && Float.compare(prefixMatchWeight, other.prefixMatchWeight) == 0
+                && index.equals(other.index)
+                && query.equals(other.query)
+                && tags.equals(other.tags)
+                && roles.equals(other.roles)
+                && fields.equals(other.fields)
+                && output.equals(other.output);
+        }
+
+        @Override
+        public String toString() {
+            return "Key [index=" + index + ", query=" + query + ", size=" + size + ", tags=" + tags + ", roles=" + roles
+                + ", fields=" + fields + ", prefixMatchWeight=" + prefixMatchWeight + ", output=" + output + "]";
+        }
+    }
+
+    public static class CachedResponse {
+        protected final String contentType;
+        protected final byte[] content;
+        protected final long timestamp;
+        protected final CounterMetric hits = new CounterMetric();
+
+        public CachedResponse(final String contentType, final byte[] content) {
+            this(contentType, content, System.currentTimeMillis());
+        }
+
+        public CachedResponse(final String contentType, final byte[] content, final long timestamp) {
+            this.contentType = contentType;
+            this.content = content;
+            this.timestamp = timestamp;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public long getHitCount() {
+            return hits.count();
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
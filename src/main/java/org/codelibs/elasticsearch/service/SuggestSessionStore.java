@@ -0,0 +1,151 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.codelibs.fess.suggest.entity.SuggestItem;
+import org.elasticsearch.common.metrics.CounterMetric;
+
+/**
+ * Candidate sets of suggest sessions. A query that extends the previous
+ * query of the session is answered by filtering the candidates of the
+ * previous query. The store is bounded by the total number of candidates.
+ */
+public class SuggestSessionStore {
+    protected final Cache<String, Session> cache;
+
+    protected final int candidateSize;
+
+    protected final CounterMetric hitCount = new CounterMetric();
+
+    protected final CounterMetric missCount = new CounterMetric();
+
+    public SuggestSessionStore(final int candidateSize, final long maxCandidates, final long expireMillis) {
+        this.candidateSize = candidateSize;
+        this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxCandidates)
+            .weigher((String key, Session session) -> session.candidates.size() + 1)
+            .expireAfterAccess(expireMillis, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    public int getCandidateSize() {
+        return candidateSize;
+    }
+
+    /**
+     * Returns the top items for the query from the session, or null if the
+     * query does not extend the session's query or too few candidates are left.
+     */
+    public List<SuggestItem> narrow(final String sessionId, final String index, final String filter, final String query,
+            final List<String> readings, final int size) {
+        final Session session = cache.getIfPresent(sessionId);
+        if (session == null || !session.index.equals(index) || !session.filter.equals(filter)
+            || !query.startsWith(session.query) || hasWhitespace(query)) {
+            missCount.inc();
+            return null;
+        }
+        final List<SuggestItem> candidates;
+        if (query.length() == session.query.length()) {
+            candidates = session.candidates;
+        } else {
+            candidates = new ArrayList<>();
+            for (final SuggestItem item : session.candidates) {
+                if (matches(item, query, readings)) {
+                    candidates.add(item);
+                }
+            }
+        }
+        if (!session.complete && candidates.size() < size) {
+            missCount.inc();
+            return null;
+        }
+        cache.put(sessionId, new Session(index, filter, query, candidates, session.complete));
+        hitCount.inc();
+        return candidates.size() > size ? candidates.subList(0, size) : candidates;
+    }
+
+    /**
+     * Stores the result of a full query as the candidates of the session.
+     */
+    public void put(final String sessionId, final String index, final String filter, final String query,
+            final List<SuggestItem> items, final long total) {
+        if (hasWhitespace(query)) {
+            cache.invalidate(sessionId);
+            return;
+        }
+        cache.put(sessionId, new Session(index, filter, query, new ArrayList<>(items), total <= items.size()));
+    }
+
+    public void invalidate(final String index) {
+        cache.asMap().values().removeIf(session -> session.index.equals(index));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.count();
+    }
+
+    public long getMissCount() {
+        return missCount.count();
+    }
+
+    public static String filter(final String tags, final String roles, final String fields, final float prefixMatchWeight) {
+        return tags + '|' + roles + '|' + fields + '|' + prefixMatchWeight;
+    }
+
+    protected static boolean matches(final SuggestItem item, final String query, final List<String> readings) {
+        if (item.getText().startsWith(query)) {
+            return true;
+        }
+        final String[][] itemReadings = item.getReadings();
+        if (itemReadings == null || itemReadings.length == 0 || itemReadings[0] == null) {
+            return false;
+        }
+        for (final String itemReading : itemReadings[0]) {
+            for (final String reading : readings) {
+                if (itemReading.startsWith(reading)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasWhitespace(final String query) {
+        for (int i = 0; i < query.length(); i++) {
+            if (Character.isWhitespace(query.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected static class Session {
+        protected final String index;
+        protected final String filter;
+        protected final String query;
+        protected final List<SuggestItem> candidates;
+        protected final boolean complete;
+
+        protected Session(final String index, final String filter, final String query, final List<SuggestItem> candidates,
+                final boolean complete) {
+            this.index = index;
+            this.filter = filter;
+            this.query = query;
+            this.candidates = Collections.unmodifiableList(candidates);
+            this.complete = complete;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.codelibs.elasticsearch.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.common.hash.MurmurHash3;
+
+/**
+ * Sliding-window word counts of one suggest index in fixed memory.
+ * Each time bucket holds a count-min sketch, and a bounded set of
+ * heavy-hitter candidates keeps the words that can be ranked.
+ * Candidates are kept in the order of their last update, to drop the ones
+ * older than the sketches first, and in a min-heap of their estimates.
+ */
+public class TrendingWords {
+    protected final long bucketMillis;
+
+    protected final int depth;
+
+    protected final int width;
+
+    protected final int capacity;
+
+    protected final int[][][] sketches;
+
+    protected final long[] epochs;
+
+    protected final Map<String, Candidate> candidates = new LinkedHashMap<>(16, 0.75f, true);
+
+    protected final Candidate[] heap;
+
+    public TrendingWords(final long bucketMillis, final int buckets, final int depth, final int width, final int capacity) {
+        this.bucketMillis = bucketMillis;
+        this.depth = depth;
+        this.width = width;
+        this.capacity = capacity;
+        this.sketches = new int[buckets][depth][width];
+        this.epochs = new long[buckets];
+        this.heap = new Candidate[capacity];
+        Arrays.fill(epochs, -1);
+    }
+
+    public synchronized void add(final String word, final long count, final long now) {
+        final long epoch = now / bucketMillis;
+        final int[][] sketch = bucket(epoch);
+        final int[] hashes = hashes(word);
+        for (int d = 0; d < depth; d++) {
+            final int pos = index(hashes, d);
+            sketch[d][pos] = (int) Math.min(Integer.MAX_VALUE, sketch[d][pos] + count);
+        }
+
+        final long estimate = estimate(hashes, epoch, epochs.length);
+        final Candidate candidate = candidates.get(word);
+        if (candidate != null) {
+            final long previous = candidate.estimate;
+            candidate.estimate = estimate;
+            candidate.epoch = epoch;
+            if (estimate < previous) {
+                siftUp(candidate.pos);
+            } else {
+                siftDown(candidate.pos);
+            }
+            return;
+        }
+        if (capacity <= 0 || candidates.size() >= capacity && !evictCandidate(epoch, estimate)) {
+            return;
+        }
+        final Candidate added = new Candidate(word, estimate, epoch);
+        candidates.put(word, added);
+        added.pos = candidates.size() - 1;
+        heap[added.pos] = added;
+        siftUp(added.pos);
+    }
+
+    /**
+     * Returns the words with the largest growth of the last window over the
+     * average of the earlier windows kept by the sketches.
+     */
+    public synchronized List<Trend> trending(final long windowMillis, final int size, final long now) {
+        final long epoch = now / bucketMillis;
+        final int window = (int) Math.max(1, Math.min(epochs.length, windowMillis / bucketMillis));
+        final int history = epochs.length - window;
+        final List<Trend> trends = new ArrayList<>();
+        for (final Candidate candidate : candidates.values()) {
+            if (epoch - candidate.epoch >= window) {
+                continue;
+            }
+            final int[] hashes = hashes(candidate.word);
+            final long count = estimate(hashes, epoch, window);
+            if (count == 0) {
+                continue;
+            }
+            final double baseline = history > 0 ? (estimate(hashes, epoch, epochs.length) - count) * (double) window / history : 0d;
+            trends.add(new Trend(candidate.word, count, baseline, (count + 1d) / (baseline + 1d)));
+        }
+        trends.sort((t1, t2) -> {
+            final int c = Double.compare(t2.score, t1.score);
+            return c != 0 ? c : Long.compare(t2.count, t1.count);
+        });
+        return trends.size() > size ? new ArrayList<>(trends.subList(0, size)) : trends;
+    }
+
+    public long getMemorySize() {
+        return 4L * sketches.length * depth * width + 8L * epochs.length;
+    }
+
+    public synchronized int getCandidateCount() {
+        return candidates.size();
+    }
+
+    private boolean evictCandidate(final long epoch, final long estimate) {
+        // least recently updated first
+        final Candidate eldest = candidates.values().iterator().next();
+        if (epoch - eldest.epoch >= epochs.length) {
+            removeCandidate(eldest);
+            return true;
+        }
+        if (heap[0].estimate >= estimate) {
+            return false;
+        }
+        removeCandidate(heap[0]);
+        return true;
+    }
+
+    private void removeCandidate(final Candidate candidate) {
+        candidates.remove(candidate.word);
+        final int last = candidates.size();
+        final Candidate moved = heap[last];
+        heap[last] = null;
+        if (moved != candidate) {
+            heap[candidate.pos] = moved;
+            moved.pos = candidate.pos;
+            siftUp(moved.pos);
+            siftDown(moved.pos);
+        }
+    }
+
+    private void siftUp(int pos) {
+        final Candidate candidate = heap[pos];
+        while (pos > 0) {
+            final int parent = (pos - 1) >>> 1;
+            if (heap[parent].estimate <= candidate.estimate) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            heap[pos].pos = pos;
+            pos = parent;
+        }
+        heap[pos] = candidate;
+        candidate.pos = pos;
+    }
+
+    private void siftDown(int pos) {
+        final Candidate candidate = heap[pos];
+        final int size = candidates.size();
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].estimate < heap[child].estimate) {
+                child++;
+            }
+            if (candidate.estimate <= heap[child].estimate) {
+                break;
+            }
+            heap[pos] = heap[child];
+            heap[pos].pos = pos;
+            pos = child;
+        }
+        heap[pos] = candidate;
+        candidate.pos = pos;
+    }
+
+    private int[][] bucket(final long epoch) {
+        final int slot = (int) (epoch % epochs.length);
+        final int[][] sketch = sketches[slot];
+        if (epochs[slot] != epoch) {
+            for (final int[] row : sketch) {
+                Arrays.fill(row, 0);
+            }
+            epochs[slot] = epoch;
+        }
+        return sketch;
+    }
+
+    private long estimate(final int[] hashes, final long epoch, final int buckets) {
+        long total = 0;
+        for (int b = 0; b < buckets; b++) {
+            final long e = epoch - b;
+            if (e < 0) {
+                break;
+            }
+            final int slot = (int) (e % epochs.length);
+            if (epochs[slot] != e) {
+                continue;
+            }
+            long min = Long.MAX_VALUE;
+            for (int d = 0; d < depth; d++) {
+                min = Math.min(min, sketches[slot][d][index(hashes, d)]);
+            }
+            total += min;
+        }
+        return total;
+    }
+
+    private int index(final int[] hashes, final int d) {
+        return ((hashes[0] + d * hashes[1]) & Integer.MAX_VALUE) % width;
+    }
+
+    private static int[] hashes(final String word) {
+        final byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        final MurmurHash3.Hash128 hash = MurmurHash3.hash128(bytes, 0, bytes.length, 0, new MurmurHash3.Hash128());
+        return new int[] { (int) hash.h1, (int) hash.h2 };
+    }
+
+    protected static class Candidate {
+        protected final String word;
+        protected long estimate;
+        protected long epoch;
+        protected int pos;
+
+        protected Candidate(final String word, final long estimate, final long epoch) {
+            this.word = word;
+            this.estimate = estimate;
+            this.epoch = epoch;
+        }
+    }
+
+    public static class Trend {
+        protected final String word;
+        protected final long count;
+        protected final double baseline;
+        protected final double score;
+
+        protected Trend(final String word, final long count, final double baseline, final double score) {
+            this.word = word;
+            this.count = count;
+            this.baseline = baseline;
+            this.score = score;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getBaseline() {
+            return baseline;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.codelibs.elasticsearch;
+
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+
+import static org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner.newConfigs;
+
+/**
+ * Starts a one node cluster with this plugin for tests and benchmarks.
+ */
+public final class FessSuggestTestCluster {
+
+    private FessSuggestTestCluster() {
+    }
+
+    public static ElasticsearchClusterRunner start(final String clusterName) {
+        return start(clusterName, (number, settingsBuilder) -> {});
+    }
+
+    /**
+     * @param clusterName the cluster name, unique per test class
+     * @param settings additional node settings
+     */
+    public static ElasticsearchClusterRunner start(final String clusterName, final ElasticsearchClusterRunner.Builder settings) {
+        final ElasticsearchClusterRunner runner = new ElasticsearchClusterRunner();
+        runner.onBuild((number, settingsBuilder) -> {
+            settingsBuilder.put("index.number_of_shards", 1);
+            settingsBuilder.put("index.number_of_replicas", 0);
+            settingsBuilder.putArray("discovery.zen.ping.unicast.hosts", "localhost:9301-9399");
+            settingsBuilder.put("plugin.types", "org.codelibs.elasticsearch.FessSuggestPlugin,org.codelibs.elasticsearch.kuromoji.neologd.KuromojiNeologdPlugin");
+            settings.build(number, settingsBuilder);
+        }).build(newConfigs().clusterName(clusterName).numOfNode(1));
+
+        runner.ensureYellow();
+        return runner;
+    }
+
+    public static void stop(final ElasticsearchClusterRunner runner) {
+        if (runner != null) {
+            runner.close();
+            runner.clean();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.codelibs.elasticsearch.replay;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+import org.codelibs.elasticsearch.runner.net.Curl;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays a query log against an embedded node and logs throughput, latency
+ * percentiles and error rates per endpoint. Without replay.log, a synthetic
+ * keystroke log is generated.
+ * Run with: mvn test -Dtest=QueryLogReplayBenchmark -Dreplay.log=queries.json -Dreplay.rate=2 -Dreplay.index=fess
+ */
+public class QueryLogReplayBenchmark {
+    private static final ESLogger logger = Loggers.getLogger(QueryLogReplayBenchmark.class);
+
+    private static final String[] WORDS = { "検索エンジン", "全文検索", "日本語解析", "search engine", "suggest", "fulltext" };
+
+    private static ElasticsearchClusterRunner runner;
+
+    private static String index;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        runner = FessSuggestTestCluster.start("QueryLogReplayBenchmark");
+
+        index = System.getProperty("replay.index", "fess");
+        Curl.post(runner.masterNode(), index + "/_fsuggest/create").execute().close();
+        final StringBuilder buf = new StringBuilder();
+        for (final String word : WORDS) {
+            buf.append("{\"keyword\":\"").append(word).append("\",\"fields\":[\"content\"],\"freq\":10}\n");
+        }
+        Curl.post(runner.masterNode(), index + "/_fsuggest/update/_bulk").body(buf.toString()).execute().close();
+        runner.refresh();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        FessSuggestTestCluster.stop(runner);
+    }
+
+    @Test
+    public void replay() throws Exception {
+        final String log = System.getProperty("replay.log");
+        final List<QueryLogReplayer.Entry> entries = log != null ? QueryLogReplayer.readLog(Paths.get(log)) : syntheticLog();
+        final double rate = Double.parseDouble(System.getProperty("replay.rate", log != null ? "1" : "10"));
+        final int threads = Integer.parseInt(System.getProperty("replay.threads", "16"));
+
+        final QueryLogReplayer.Report report = new QueryLogReplayer(runner.masterNode(), entries, rate, threads).replay();
+        logger.info("replayed {} entries\n{}", entries.size(), report);
+        assertTrue(report.getCount(QueryLogReplayer.ENDPOINT_SUGGEST) > 0 || log != null);
+    }
+
+    private static List<QueryLogReplayer.Entry> syntheticLog() {
+        final Random random = new Random(0);
+        final List<QueryLogReplayer.Entry> entries = new ArrayList<>();
+        long timestamp = 0;
+        for (int i = 0; i < 200; i++) {
+            final String word = WORDS[random.nextInt(WORDS.length)];
+            for (int j = 1; j <= word.length(); j++) {
+                timestamp += 50 + random.nextInt(150);
+                entries.add(new QueryLogReplayer.Entry(timestamp, "GET", index + "/_fsuggest",
+                    Collections.singletonMap("q", word.substring(0, j)), null));
+            }
+            if (i % 10 == 0) {
+                entries.add(new QueryLogReplayer.Entry(timestamp, "GET", index + "/_fsuggest/pwords",
+                    Collections.singletonMap("query_freq", "0"), null));
+            }
+            entries.add(new QueryLogReplayer.Entry(timestamp, "POST", index + "/_fsuggest/update/searchword",
+                Collections.emptyMap(), "{\"keyword\":\"" + word + "\"}"));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,218 @@
+package org.codelibs.elasticsearch.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.codelibs.elasticsearch.runner.net.Curl;
+import org.codelibs.elasticsearch.runner.net.CurlRequest;
+import org.codelibs.elasticsearch.runner.net.CurlResponse;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.node.Node;
+
+/**
+ * Replays a recorded query log against a node.
+ * Each line of the log is a JSON object such as
+ * {"timestamp":1472688000000,"method":"GET","path":"fess/_fsuggest","params":{"q":"検索"}}
+ * with an optional "body" for update requests. Requests are sent at their
+ * recorded offsets divided by the rate, or back to back when the rate is 0.
+ * Latencies are measured from the scheduled time so that a stalled node is not
+ * hidden by delayed sends.
+ */
+public class QueryLogReplayer {
+    public static final String ENDPOINT_SUGGEST = "suggest";
+    public static final String ENDPOINT_PWORDS = "pwords";
+    public static final String ENDPOINT_UPDATE = "update";
+    public static final String ENDPOINT_OTHER = "other";
+
+    protected final Node node;
+
+    protected final List<Entry> entries;
+
+    protected final double rate;
+
+    protected final int threads;
+
+    protected final Map<String, EndpointStats> stats = new TreeMap<>();
+
+    public QueryLogReplayer(final Node node, final List<Entry> entries, final double rate, final int threads) {
+        this.node = node;
+        this.entries = entries;
+        this.rate = rate;
+        this.threads = threads;
+        for (final String endpoint : new String[] { ENDPOINT_SUGGEST, ENDPOINT_PWORDS, ENDPOINT_UPDATE, ENDPOINT_OTHER }) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    public static List<Entry> readLog(final Path path) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                entries.add(Entry.parse(line));
+            }
+        }
+        Collections.sort(entries, (e1, e2) -> Long.compare(e1.timestamp, e2.timestamp));
+        return entries;
+    }
+
+    public Report replay() throws InterruptedException {
+        if (entries.isEmpty()) {
+            return new Report(stats, 0);
+        }
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads);
+        final CountDownLatch latch = new CountDownLatch(entries.size());
+        final long origin = entries.get(0).timestamp;
+        final long start = System.nanoTime();
+        try {
+            for (final Entry entry : entries) {
+                final long delay = rate > 0 ? (long) (TimeUnit.MILLISECONDS.toNanos(entry.timestamp - origin) / rate) : 0;
+                final long scheduled = start + delay;
+                executor.schedule(() -> {
+                    try {
+                        send(entry, scheduled);
+                    } finally {
+                        latch.countDown();
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+            }
+            latch.await();
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Report(stats, System.nanoTime() - start);
+    }
+
+    protected void send(final Entry entry, final long scheduled) {
+        final EndpointStats s = stats.get(endpoint(entry.path));
+        CurlRequest request = "GET".equalsIgnoreCase(entry.method) ? Curl.get(node, entry.path) : Curl.post(node, entry.path);
+        for (final Map.Entry<String, String> param : entry.params.entrySet()) {
+            request = request.param(param.getKey(), param.getValue());
+        }
+        if (entry.body != null) {
+            request = request.body(entry.body);
+        }
+        boolean failed;
+        try (CurlResponse response = request.execute()) {
+            failed = response.getHttpStatusCode() >= 400 || response.getContentException() != null;
+        } catch (final Exception e) {
+            failed = true;
+        }
+        s.count.incrementAndGet();
+        if (failed) {
+            s.errors.incrementAndGet();
+        }
+        s.latency.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled)));
+    }
+
+    protected static String endpoint(final String path) {
+        if (path.contains("/_fsuggest/update")) {
+            return ENDPOINT_UPDATE;
+        } else if (path.endsWith("/_fsuggest/pwords")) {
+            return ENDPOINT_PWORDS;
+        } else if (path.endsWith("/_fsuggest")) {
+            return ENDPOINT_SUGGEST;
+        }
+        return ENDPOINT_OTHER;
+    }
+
+    public static class Entry {
+        protected final long timestamp;
+        protected final String method;
+        protected final String path;
+        protected final Map<String, String> params;
+        protected final String body;
+
+        public Entry(final long timestamp, final String method, final String path, final Map<String, String> params,
+                final String body) {
+            this.timestamp = timestamp;
+            this.method = method;
+            this.path = path;
+            this.params = params;
+            this.body = body;
+        }
+
+        @SuppressWarnings("unchecked")
+        public static Entry parse(final String line) throws IOException {
+            final Map<String, Object> map = XContentFactory.xContent(line).createParser(line).map();
+            final Map<String, String> params = new TreeMap<>();
+            final Object paramsObj = map.get("params");
+            if (paramsObj instanceof Map) {
+                for (final Map.Entry<String, Object> param : ((Map<String, Object>) paramsObj).entrySet()) {
+                    params.put(param.getKey(), String.valueOf(param.getValue()));
+                }
+            }
+            final Object bodyObj = map.get("body");
+            final String body;
+            if (bodyObj instanceof Map) {
+                body = JsonXContent.contentBuilder().map((Map<String, Object>) bodyObj).string();
+            } else {
+                body = bodyObj != null ? bodyObj.toString() : null;
+            }
+            final Object method = map.get("method");
+            return new Entry(((Number) map.get("timestamp")).longValue(), method != null ? method.toString() : "GET",
+                (String) map.get("path"), params, body);
+        }
+    }
+
+    protected static class EndpointStats {
+        protected final AtomicLong count = new AtomicLong();
+        protected final AtomicLong errors = new AtomicLong();
+        protected final ConcurrentHistogram latency = new ConcurrentHistogram(3);
+    }
+
+    public static class Report {
+        protected final Map<String, EndpointStats> stats;
+
+        protected final long elapsedNanos;
+
+        protected Report(final Map<String, EndpointStats> stats, final long elapsedNanos) {
+            this.stats = stats;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getCount(final String endpoint) {
+            return stats.get(endpoint).count.get();
+        }
+
+        public long getErrors(final String endpoint) {
+            return stats.get(endpoint).errors.get();
+        }
+
+        @Override
+        public String toString() {
+            final double seconds = elapsedNanos / 1e9;
+            final StringBuilder buf = new StringBuilder();
+            buf.append(String.format("elapsed %.2fs%n", seconds));
+            for (final Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+                final EndpointStats s = entry.getValue();
+                final long count = s.count.get();
+                if (count == 0) {
+                    continue;
+                }
+                buf.append(String.format("%-8s %8d req %9.1f req/s  p50 %8.2fms  p90 %8.2fms  p99 %8.2fms  max %8.2fms  errors %.2f%%%n",
+                    entry.getKey(), count, seconds > 0 ? count / seconds : 0d, s.latency.getValueAtPercentile(50) / 1000d,
+                    s.latency.getValueAtPercentile(90) / 1000d, s.latency.getValueAtPercentile(99) / 1000d,
+                    s.latency.getMaxValue() / 1000d, s.errors.get() * 100d / count));
+            }
+            return buf.toString();
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package org.codelibs.elasticsearch.rest;
 
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
 import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
 import org.codelibs.elasticsearch.runner.net.Curl;
 import org.codelibs.elasticsearch.runner.net.CurlResponse;
+import org.codelibs.elasticsearch.service.FessSuggestIndexer;
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-import static org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner.newConfigs;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.*;
 
 
@@ -18,24 +27,17 @@ public class FessSuggestRestActionTest {
 
     @BeforeClass
     public static void beforeClass() throws Exception {
-        runner = new ElasticsearchClusterRunner();
-        runner.onBuild((number, settingsBuilder) -> {
+        runner = FessSuggestTestCluster.start("FessSuggestRestActionTest", (number, settingsBuilder) -> {
             settingsBuilder.put("http.cors.enabled", true);
             settingsBuilder.put("http.cors.allow-origin", "*");
-            settingsBuilder.put("index.number_of_shards", 1);
-            settingsBuilder.put("index.number_of_replicas", 0);
-            settingsBuilder.putArray("discovery.zen.ping.unicast.hosts", "localhost:9301-9399");
-            settingsBuilder.put("plugin.types", "org.codelibs.elasticsearch.FessSuggestPlugin,org.codelibs.elasticsearch.kuromoji.neologd.KuromojiNeologdPlugin");
             settingsBuilder.put("fsuggest.ngquery", "k,ken");
-        }).build(newConfigs().clusterName("FessSuggestRestActionTest").numOfNode(1));
-
-        runner.ensureYellow();
+            settingsBuilder.put("fsuggest.cache.enabled", true);
+        });
     }
 
     @AfterClass
     public static void afterClass() throws Exception {
-        runner.close();
-        runner.clean();
+        FessSuggestTestCluster.stop(runner);
     }
 
     @Before
@@ -120,6 +122,41 @@ public class FessSuggestRestActionTest {
         assertEquals(1, (int) response3.getContentAsMap().get("total"));
     }
 
+    @Test
+    public void test_suggestFromDocuments() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        CurlResponse updateResponse = Curl.post(runner.masterNode(), "fess/_fsuggest/update/documents").body(
+            "{\n" +
+                "\"fields\" : [\"aaa\"],\n" +
+                "\"documents\" : [\n" +
+                "  {\"document\" : \"検索エンジンの仕組み。\", \"roles\" : [\"role1\"]},\n" +
+                "  {\"document\" : \"全文検索の仕組み。\", \"fields\" : [\"bbb\"], \"roles\" : [\"role2\"]},\n" +
+                "  {\"document\" : \"日本語の仕組み。\", \"fields\" : []},\n" +
+                "  {\"roles\" : [\"role1\"]}\n" +
+                "]\n" +
+                "}"
+        ).execute();
+        runner.refresh();
+        final Map<String, Object> updateMap = updateResponse.getContentAsMap();
+        assertEquals(2, (int) updateMap.get("accepted"));
+        assertEquals(2, (int) updateMap.get("rejected"));
+
+        CurlResponse response1 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "仕組み").param("roles", "role1").execute();
+        assertEquals(1, (int) response1.getContentAsMap().get("total"));
+
+        CurlResponse response2 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "全文").param("roles", "role2").param("fields", "bbb").execute();
+        assertEquals(1, (int) response2.getContentAsMap().get("total"));
+
+        CurlResponse response3 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "全文").param("roles", "role1").execute();
+        assertEquals(0, (int) response3.getContentAsMap().get("total"));
+
+        CurlResponse response4 = Curl.get(runner.masterNode(), "fess/_fsuggest").param("q", "日本語").execute();
+        assertEquals(0, (int) response4.getContentAsMap().get("total"));
+    }
+
     @Test
     public void test_ngQuery() throws Exception {
         Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
@@ -147,6 +184,395 @@ public class FessSuggestRestActionTest {
 
     }
 
+    @Test
+    public void test_ngQueryReload() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword").body(
+            "{\n" +
+                "\"keyword\" : \"検索エンジン\",\n" +
+                "\"roles\" : [\"role1\"]\n" +
+                "}"
+        ).execute();
+        runner.refresh();
+
+        try {
+            Curl.put(runner.masterNode(), "_cluster/settings").body(
+                "{\"transient\":{\"fsuggest.ngquery\":\"検索エ*,*ンジ*\"}}"
+            ).execute();
+
+            CurlResponse response1 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+                .param("q", "検索").param("roles", "role1").execute();
+            assertEquals(1, (int) response1.getContentAsMap().get("total"));
+
+            CurlResponse response2 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+                .param("q", "検索エン").param("roles", "role1").execute();
+            assertEquals(0, (int) response2.getContentAsMap().get("total"));
+
+            CurlResponse response3 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+                .param("q", "エンジ").param("roles", "role1").execute();
+            assertEquals(0, (int) response3.getContentAsMap().get("total"));
+        } finally {
+            Curl.put(runner.masterNode(), "_cluster/settings").body(
+                "{\"transient\":{\"fsuggest.ngquery\":\"k,ken\"}}"
+            ).execute();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_bulkUpdate() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            buf.append("{\"keyword\":\"検索").append(i % 5).append(" エンジン\",\"fields\":[\"aaa\"],\"roles\":[\"role1\"],\"freq\":2}\n");
+        }
+        // single values instead of arrays
+        buf.append("{\"keyword\":\"全文検索\",\"fields\":\"bbb\",\"tags\":\"tag1\",\"roles\":\"role1\"}\n");
+        buf.append("{\"fields\":[\"aaa\"]}\n");
+        buf.append("not json\n");
+        CurlResponse bulkResponse = Curl.post(runner.masterNode(), "fess/_fsuggest/update/_bulk")
+            .param("batch_size", "3").body(buf.toString()).execute();
+        final Map<String, Object> bulkMap = bulkResponse.getContentAsMap();
+        assertEquals(11, bulkMap.get("accepted"));
+        assertEquals(2, bulkMap.get("rejected"));
+        runner.refresh();
+
+        CurlResponse response1 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").param("roles", "role1").param("fields", "aaa").execute();
+        assertEquals(5, (int) response1.getContentAsMap().get("total"));
+
+        CurlResponse response2 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "全文").param("roles", "role1").param("fields", "bbb").param("tags", "tag1").execute();
+        assertEquals(1, (int) response2.getContentAsMap().get("total"));
+
+        final Map<String, Object> stats = Curl.get(runner.masterNode(), "_fsuggest/_stats").param("local", "true").execute()
+            .getContentAsMap();
+        final Map<String, Object> bulk = (Map<String, Object>) ((Map<String, Object>) stats.get("latency")).get("bulk");
+        assertTrue(((Number) ((Map<String, Object>) bulk.get("fess")).get("count")).longValue() >= 1);
+    }
+
+    @Test
+    public void test_multiSearch() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword").body(
+            "{\n" +
+                "\"keyword\" : \"検索エンジン\",\n" +
+                "\"tags\" : [\"tag1\"]\n" +
+                "}"
+        ).execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword").body(
+            "{\n" +
+                "\"keyword\" : \"検索結果\",\n" +
+                "\"tags\" : [\"tag2\"]\n" +
+                "}"
+        ).execute();
+        runner.refresh();
+
+        CurlResponse response = Curl.post(runner.masterNode(), "_fsuggest/_msearch").body(
+            "{\"requests\":[" +
+                "{\"index\":\"fess\",\"q\":\"検索\"}," +
+                "{\"index\":\"fess\",\"q\":\"検索\",\"tags\":[\"tag1\"]}," +
+                "{\"index\":\"fess\",\"q\":\"\"}" +
+                "]}"
+        ).execute();
+        @SuppressWarnings("unchecked")
+        final List<Map<String, Object>> responses = (List<Map<String, Object>>) response.getContentAsMap().get("responses");
+        assertEquals(3, responses.size());
+        assertEquals(2, (int) responses.get(0).get("total"));
+        assertEquals(1, (int) responses.get(1).get("total"));
+        assertEquals(0, (int) responses.get(2).get("total"));
+    }
+
+    @Test
+    public void test_updateFromIndex() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        runner.createIndex("content", null);
+        for (int i = 0; i < 5; i++) {
+            runner.insert("content", "doc", String.valueOf(i), "{\"title\":\"検索エンジン" + i + "\"}");
+        }
+        runner.refresh();
+
+        CurlResponse startResponse = Curl.post(runner.masterNode(), "fess/_fsuggest/update/from_index").body(
+            "{\"source_index\":\"content\",\"fields\":[\"title\"],\"batch_size\":2}"
+        ).execute();
+        assertEquals("content", startResponse.getContentAsMap().get("source_index"));
+
+        Map<String, Object> status = null;
+        for (int i = 0; i < 100; i++) {
+            status = Curl.get(runner.masterNode(), "fess/_fsuggest/update/from_index").execute().getContentAsMap();
+            if (!"running".equals(status.get("status"))) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertEquals("completed", status.get("status"));
+        assertEquals(5, ((Number) status.get("processed")).intValue());
+        runner.refresh();
+
+        CurlResponse response = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").execute();
+        assertTrue((int) response.getContentAsMap().get("total") > 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_compactResponse() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword").body(
+            "{\n" +
+                "\"keyword\" : \"検索エンジン\",\n" +
+                "\"tags\" : [\"tag1\"]\n" +
+                "}"
+        ).execute();
+        runner.refresh();
+
+        CurlResponse response1 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").param("compact", "true").execute();
+        final List<Object> hits = (List<Object>) response1.getContentAsMap().get("hits");
+        assertEquals(1, hits.size());
+        assertTrue(hits.get(0) instanceof String);
+
+        CurlResponse response2 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").param("filter_path", "hits.text").execute();
+        final Map<String, Object> map = response2.getContentAsMap();
+        assertEquals(1, map.size());
+        assertEquals("検索エンジン", ((List<Map<String, Object>>) map.get("hits")).get(0).get("text"));
+    }
+
+    @Test
+    public void test_timeout() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword").body(
+            "{\n" +
+                "\"keyword\" : \"検索エンジン\"\n" +
+                "}"
+        ).execute();
+        runner.refresh();
+
+        CurlResponse response1 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").param("timeout", "10s").execute();
+        final Map<String, Object> map1 = response1.getContentAsMap();
+        assertEquals(1, (int) map1.get("total"));
+        assertFalse(map1.containsKey("timed_out"));
+
+        final long timeouts = getSuggestTimeouts("fess");
+        // keep the search threads busy so the request cannot finish before its timeout
+        final ThreadPool threadPool = runner.getInstance(ThreadPool.class);
+        final int searchThreads = threadPool.info(ThreadPool.Names.SEARCH).getMax();
+        final CountDownLatch started = new CountDownLatch(searchThreads);
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < searchThreads; i++) {
+            threadPool.executor(ThreadPool.Names.SEARCH).execute(() -> {
+                started.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        try {
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CurlResponse response2 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+                .param("q", "検索エ").param("timeout", "100ms").execute();
+            final Map<String, Object> map2 = response2.getContentAsMap();
+            assertEquals(Boolean.TRUE, map2.get("timed_out"));
+            assertEquals(0, (int) map2.get("num"));
+
+            // a session request searches to fill its candidates and falls back to the response cached by the first request
+            CurlResponse response4 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+                .param("q", "検索").param("session", "timeout").param("timeout", "100ms").execute();
+            final Map<String, Object> map4 = response4.getContentAsMap();
+            assertEquals(Boolean.TRUE, map4.get("timed_out"));
+            assertEquals(1, (int) map4.get("num"));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(timeouts + 2, getSuggestTimeouts("fess"));
+
+        CurlResponse response3 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").param("timeout", "abc").execute();
+        assertEquals(400, response3.getHttpStatusCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long getSuggestTimeouts(final String index) {
+        final Map<String, Object> stats = Curl.get(runner.masterNode(), "_fsuggest/_stats").param("local", "true").execute()
+            .getContentAsMap();
+        final Map<String, Object> suggest = (Map<String, Object>) ((Map<String, Object>) stats.get("latency")).get("suggest");
+        final Map<String, Object> indexStats = suggest != null ? (Map<String, Object>) suggest.get(index) : null;
+        return indexStats != null ? ((Number) indexStats.get("timeouts")).longValue() : 0;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_session() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        final StringBuilder buf = new StringBuilder();
+        buf.append("{\"keyword\":\"検索エンジン\",\"freq\":3}\n");
+        buf.append("{\"keyword\":\"検査\",\"freq\":2}\n");
+        buf.append("{\"keyword\":\"全文検索\",\"freq\":1}\n");
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/_bulk").body(buf.toString()).execute();
+        runner.refresh();
+
+        CurlResponse response1 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検").param("session", "s1").execute();
+        assertEquals(2, (int) response1.getContentAsMap().get("total"));
+
+        CurlResponse response2 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").param("session", "s1").execute();
+        final Map<String, Object> map2 = response2.getContentAsMap();
+        assertEquals(1, (int) map2.get("total"));
+        assertEquals("検索エンジン", ((List<Map<String, Object>>) map2.get("hits")).get(0).get("text"));
+
+        CurlResponse statsResponse = Curl.get(runner.masterNode(), "_fsuggest/_stats").param("local", "true").execute();
+        final Map<String, Object> sessions = (Map<String, Object>) statsResponse.getContentAsMap().get("sessions");
+        assertEquals(1, ((Number) sessions.get("hit_count")).intValue());
+    }
+
+    @Test
+    public void test_prefixMatchWeight() throws Exception {
+        final FessSuggestService fessSuggestService = runner.getInstance(FessSuggestService.class);
+        runner.createIndex("weight1", Settings.settingsBuilder().put(FessSuggestService.INDEX_PREFIX_MATCH_WEIGHT, 2.0f).build());
+        runner.createIndex("weight2", Settings.settingsBuilder().put(FessSuggestService.INDEX_PREFIX_MATCH_WEIGHT, 3.0f).build());
+        runner.ensureYellow("weight1", "weight2");
+        assertEquals(2.0f, fessSuggestService.getPrefixMatchWeight("weight1"), 0f);
+        assertEquals(0f, fessSuggestService.getPrefixMatchWeight("weights"), 0f);
+
+        runner.updateAlias("weights", new String[] { "weight1", "weight2" }, null);
+        assertEquals(3.0f, fessSuggestService.getPrefixMatchWeight("weights"), 0f);
+
+        runner.deleteIndex("weight2");
+        assertEquals(2.0f, fessSuggestService.getPrefixMatchWeight("weights"), 0f);
+        assertEquals(0f, fessSuggestService.getPrefixMatchWeight("weight2"), 0f);
+    }
+
+    @Test
+    public void test_reuseIndexer() throws Exception {
+        final FessSuggestService fessSuggestService = runner.getInstance(FessSuggestService.class);
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword")
+            .body("{\"keyword\":\"検索 エンジン\",\"fields\":[\"aaa\"]}").execute();
+        final FessSuggestIndexer indexer = fessSuggestService.indexer("fess");
+
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword")
+            .body("{\"keyword\":\"全文 検索\",\"fields\":[\"aaa\"]}").execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/_bulk")
+            .body("{\"keyword\":\"検索 サーバー\",\"fields\":[\"aaa\"]}\n").execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/document")
+            .body("{\"document\":\"検索エンジンの仕組み。\",\"fields\":[\"aaa\"]}").execute();
+        assertSame(indexer, fessSuggestService.indexer("fess"));
+    }
+
+    @Test
+    public void test_analysisCache() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        final Map<String, Object> before = getAnalysisCacheStats();
+        // separate requests, as identical words of a bulk request are merged before the analysis
+        for (int i = 0; i < 10; i++) {
+            Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword")
+                .body("{\"keyword\":\"検索 エンジン\",\"fields\":[\"aaa\"]}").execute();
+        }
+        runner.refresh();
+
+        CurlResponse response = Curl.get(runner.masterNode(), "fess/_fsuggest").param("q", "検索").execute();
+        assertEquals(1, (int) response.getContentAsMap().get("total"));
+
+        final Map<String, Object> after = getAnalysisCacheStats();
+        // both words are analyzed by the first request only
+        assertEquals(2, ((Number) after.get("miss_count")).longValue() - ((Number) before.get("miss_count")).longValue());
+        assertEquals(18, ((Number) after.get("hit_count")).longValue() - ((Number) before.get("hit_count")).longValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getAnalysisCacheStats() {
+        return (Map<String, Object>) Curl.get(runner.masterNode(), "_fsuggest/_stats").param("local", "true").execute()
+            .getContentAsMap().get("analysis_cache");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_trending() throws Exception {
+        Curl.post(runner.masterNode(), "trend/_fsuggest/create").execute();
+        final StringBuilder buf = new StringBuilder();
+        buf.append("{\"keyword\":\"検索エンジン\",\"fields\":[\"aaa\"],\"freq\":5}\n");
+        buf.append("{\"keyword\":\"全文検索\",\"fields\":[\"aaa\"],\"freq\":20}\n");
+        Curl.post(runner.masterNode(), "trend/_fsuggest/update/_bulk").body(buf.toString()).execute();
+        Curl.post(runner.masterNode(), "trend/_fsuggest/update/searchword").body("{\"keyword\":\"日本語\"}").execute();
+
+        CurlResponse response = Curl.get(runner.masterNode(), "trend/_fsuggest/trending").param("window", "5m").param("size", "2")
+            .execute();
+        final Map<String, Object> content = response.getContentAsMap();
+        assertEquals(2, (int) content.get("num"));
+        final List<Map<String, Object>> hits = (List<Map<String, Object>>) content.get("hits");
+        assertEquals("全文検索", hits.get(0).get("text"));
+        assertEquals(20, ((Number) hits.get(0).get("count")).intValue());
+        assertEquals("検索エンジン", hits.get(1).get("text"));
+    }
+
+    @Test
+    public void test_responseCache() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword").body(
+            "{\n" +
+                "\"keyword\" : \"検索エンジン\",\n" +
+                "\"roles\" : [\"role1\"]\n" +
+                "}"
+        ).execute();
+        runner.refresh();
+
+        CurlResponse response1 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").param("roles", "role1").execute();
+        assertEquals(1, (int) response1.getContentAsMap().get("total"));
+
+        CurlResponse response2 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").param("roles", "role1").execute();
+        assertEquals(response1.getContentAsString(), response2.getContentAsString());
+
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword").body(
+            "{\n" +
+                "\"keyword\" : \"検索結果\",\n" +
+                "\"roles\" : [\"role1\"]\n" +
+                "}"
+        ).execute();
+        runner.refresh();
+
+        CurlResponse response3 = Curl.get(runner.masterNode(), "fess/_fsuggest")
+            .param("q", "検索").param("roles", "role1").execute();
+        assertEquals(2, (int) response3.getContentAsMap().get("total"));
+
+        CurlResponse statsResponse = Curl.get(runner.masterNode(), "_fsuggest/_stats").execute();
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> cache = (Map<String, Object>) statsResponse.getContentAsMap().get("cache");
+        assertTrue(((Number) cache.get("hit_count")).longValue() >= 1);
+        assertTrue(((Number) cache.get("miss_count")).longValue() >= 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_latencyStats() throws Exception {
+        Curl.post(runner.masterNode(), "fess/_fsuggest/create").execute();
+        Curl.post(runner.masterNode(), "fess/_fsuggest/update/searchword").body(
+            "{\n" +
+                "\"keyword\" : \"検索エンジン\"\n" +
+                "}"
+        ).execute();
+        runner.refresh();
+        Curl.get(runner.masterNode(), "fess/_fsuggest").param("q", "検索").execute();
+
+        final Map<String, Object> stats = Curl.get(runner.masterNode(), "_fsuggest/_stats").execute().getContentAsMap();
+        final Map<String, Object> cluster = (Map<String, Object>) stats.get("cluster");
+        assertEquals(runner.getNodeSize(), cluster.get("nodes"));
+        final Map<String, Object> latency = (Map<String, Object>) cluster.get("latency");
+        final Map<String, Object> suggest = (Map<String, Object>) ((Map<String, Object>) latency.get("suggest")).get("fess");
+        assertTrue(((Number) suggest.get("count")).longValue() >= 1);
+        assertTrue(((Map<String, Object>) suggest.get("backend")).containsKey("p99_micros"));
+        final Map<String, Object> update = (Map<String, Object>) ((Map<String, Object>) latency.get("update")).get("fess");
+        assertTrue(((Number) update.get("count")).longValue() >= 1);
+        final Map<String, Object> coalescing = (Map<String, Object>) stats.get("coalescing");
+        assertTrue(((Number) coalescing.get("request_count")).longValue() >= 1);
+    }
+
     @Test
     public void test_popularWords() throws Exception {
         final int docNum = 10;
@@ -0,0 +1,75 @@
+package org.codelibs.elasticsearch.rest;
+
+import org.codelibs.elasticsearch.FessSuggestPlugin;
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+import org.codelibs.elasticsearch.runner.net.Curl;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FessSuggestThreadPoolTest {
+    private static ElasticsearchClusterRunner runner;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        runner = FessSuggestTestCluster.start("FessSuggestThreadPoolTest", (number, settingsBuilder) -> {
+            settingsBuilder.put("threadpool.fsuggest_read.size", 1);
+            settingsBuilder.put("threadpool.fsuggest_read.queue_size", 1);
+        });
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        FessSuggestTestCluster.stop(runner);
+    }
+
+    @Test
+    public void test_threadPools() throws Exception {
+        final ThreadPool threadPool = runner.getInstance(ThreadPool.class);
+        final ThreadPool.Info read = threadPool.info(FessSuggestPlugin.THREAD_POOL_READ);
+        assertEquals(ThreadPool.ThreadPoolType.FIXED, read.getThreadPoolType());
+        assertEquals(1, read.getMax());
+        assertEquals(1, read.getQueueSize().singles());
+        assertNotNull(threadPool.info(FessSuggestPlugin.THREAD_POOL_WRITE));
+        assertNotNull(threadPool.info(FessSuggestPlugin.THREAD_POOL_PWORDS));
+    }
+
+    @Test
+    public void test_rejection() throws Exception {
+        Curl.post(runner.masterNode(), "pool/_fsuggest/create").execute();
+        final ThreadPool threadPool = runner.getInstance(ThreadPool.class);
+
+        // occupy the only read thread and its queue
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Runnable blocker = () -> {
+            started.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_READ).execute(blocker);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        threadPool.executor(FessSuggestPlugin.THREAD_POOL_READ).execute(blocker);
+        try {
+            assertEquals(429, Curl.get(runner.masterNode(), "pool/_fsuggest").param("q", "検索").execute().getHttpStatusCode());
+            // updates run on their own pool
+            assertEquals(200, Curl.post(runner.masterNode(), "pool/_fsuggest/update/searchword")
+                .body("{\"keyword\":\"検索エンジン\",\"fields\":[\"aaa\"]}").execute().getHttpStatusCode());
+        } finally {
+            release.countDown();
+        }
+        runner.refresh();
+
+        assertEquals(1, (int) Curl.get(runner.masterNode(), "pool/_fsuggest").param("q", "検索").execute().getContentAsMap().get("total"));
+    }
+}
@@ -0,0 +1,136 @@
+package org.codelibs.elasticsearch.rest;
+
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+import org.codelibs.elasticsearch.runner.net.Curl;
+import org.codelibs.elasticsearch.runner.net.CurlResponse;
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FessSuggestWriteBehindTest {
+    private static ElasticsearchClusterRunner runner;
+
+    private static FessSuggestService fessSuggestService;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        runner = FessSuggestTestCluster.start("FessSuggestWriteBehindTest", (number, settingsBuilder) -> {
+            settingsBuilder.put("fsuggest.update.write_behind.enabled", true);
+            settingsBuilder.put("fsuggest.update.write_behind.capacity", 3);
+            settingsBuilder.put("fsuggest.update.write_behind.flush_size", 100);
+            settingsBuilder.put("fsuggest.update.write_behind.flush_interval", "1h");
+        });
+        fessSuggestService = runner.getInstance(FessSuggestService.class);
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        FessSuggestTestCluster.stop(runner);
+    }
+
+    @Test
+    public void test_buffering() throws Exception {
+        Curl.post(runner.masterNode(), "wb1/_fsuggest/create").execute();
+        CurlResponse response = Curl.post(runner.masterNode(), "wb1/_fsuggest/update/searchword")
+            .body("{\"keyword\":\"検索 エンジン\",\"fields\":[\"aaa\"]}").execute();
+        assertEquals(200, response.getHttpStatusCode());
+        assertEquals(Boolean.TRUE, response.getContentAsMap().get("buffered"));
+        runner.refresh();
+
+        assertEquals(0, (int) Curl.get(runner.masterNode(), "wb1/_fsuggest").param("q", "検索").execute().getContentAsMap().get("total"));
+        assertEquals(1, writeBehindStats().get("buffer_size"));
+
+        fessSuggestService.flushWriteBuffers();
+        runner.refresh();
+
+        assertEquals(1, (int) Curl.get(runner.masterNode(), "wb1/_fsuggest").param("q", "検索").execute().getContentAsMap().get("total"));
+        assertEquals(0, writeBehindStats().get("buffer_size"));
+    }
+
+    @Test
+    public void test_bulk() throws Exception {
+        Curl.post(runner.masterNode(), "wb2/_fsuggest/create").execute();
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            buf.append("{\"keyword\":\"全文検索\",\"fields\":[\"aaa\"]}\n");
+        }
+        CurlResponse response = Curl.post(runner.masterNode(), "wb2/_fsuggest/update/_bulk").body(buf.toString()).execute();
+        final Map<String, Object> content = response.getContentAsMap();
+        assertEquals(Boolean.TRUE, content.get("buffered"));
+        assertEquals(5, content.get("accepted"));
+        assertEquals(0, content.get("rejected"));
+
+        fessSuggestService.flushWriteBuffers();
+        runner.refresh();
+
+        assertEquals(1, (int) Curl.get(runner.masterNode(), "wb2/_fsuggest").param("q", "全文").execute().getContentAsMap().get("total"));
+    }
+
+    @Test
+    public void test_rejection() throws Exception {
+        Curl.post(runner.masterNode(), "wb3/_fsuggest/create").execute();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, Curl.post(runner.masterNode(), "wb3/_fsuggest/update/searchword")
+                .body("{\"keyword\":\"検索" + i + "\",\"fields\":[\"aaa\"]}").execute().getHttpStatusCode());
+        }
+        final long rejected = ((Number) writeBehindStats().get("rejected_count")).longValue();
+
+        assertEquals(429, Curl.post(runner.masterNode(), "wb3/_fsuggest/update/searchword")
+            .body("{\"keyword\":\"検索3\",\"fields\":[\"aaa\"]}").execute().getHttpStatusCode());
+        assertEquals(429, Curl.post(runner.masterNode(), "wb3/_fsuggest/update/_bulk")
+            .body("{\"keyword\":\"検索4\",\"fields\":[\"aaa\"]}\n").execute().getHttpStatusCode());
+        // a buffered keyword is merged even if the buffer is full
+        assertEquals(200, Curl.post(runner.masterNode(), "wb3/_fsuggest/update/searchword")
+            .body("{\"keyword\":\"検索0\",\"fields\":[\"aaa\"]}").execute().getHttpStatusCode());
+        assertEquals(rejected + 2, ((Number) writeBehindStats().get("rejected_count")).longValue());
+
+        fessSuggestService.flushWriteBuffers();
+        runner.refresh();
+
+        assertEquals(3, (int) Curl.get(runner.masterNode(), "wb3/_fsuggest").param("q", "検索").execute().getContentAsMap().get("total"));
+    }
+
+    @Test
+    public void test_flushOnStop() throws Exception {
+        Curl.post(runner.masterNode(), "wb4/_fsuggest/create").execute();
+        assertEquals(200, Curl.post(runner.masterNode(), "wb4/_fsuggest/update/searchword")
+            .body("{\"keyword\":\"日本語\",\"fields\":[\"aaa\"]}").execute().getHttpStatusCode());
+
+        fessSuggestService.stop();
+        fessSuggestService.start();
+        runner.refresh();
+
+        assertEquals(1, (int) Curl.get(runner.masterNode(), "wb4/_fsuggest").param("q", "日本").execute().getContentAsMap().get("total"));
+    }
+
+    @Test
+    public void test_flushOnNodeStop() throws Exception {
+        Curl.post(runner.masterNode(), "wb5/_fsuggest/create").execute();
+        for (int i = 0; i < 2; i++) {
+            assertEquals(200, Curl.post(runner.masterNode(), "wb5/_fsuggest/update/searchword")
+                .body("{\"keyword\":\"全文" + i + "\",\"fields\":[\"aaa\"]}").execute().getHttpStatusCode());
+        }
+        assertEquals(2, writeBehindStats().get("buffer_size"));
+
+        runner.getNode(0).close();
+        assertTrue(runner.startNode(0));
+        runner.ensureYellow();
+        fessSuggestService = runner.getInstance(FessSuggestService.class);
+        runner.refresh();
+
+        assertEquals(2, (int) Curl.get(runner.masterNode(), "wb5/_fsuggest").param("q", "全文").execute().getContentAsMap().get("total"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> writeBehindStats() {
+        final Map<String, Object> stats = Curl.get(runner.masterNode(), "_fsuggest/_stats").param("local", "true").execute()
+            .getContentAsMap();
+        return (Map<String, Object>) stats.get("write_behind");
+    }
+}
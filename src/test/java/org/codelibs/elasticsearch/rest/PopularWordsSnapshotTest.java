@@ -0,0 +1,76 @@
+package org.codelibs.elasticsearch.rest;
+
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+import org.codelibs.elasticsearch.runner.net.Curl;
+import org.codelibs.elasticsearch.service.FessSuggestService;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PopularWordsSnapshotTest {
+    private static ElasticsearchClusterRunner runner;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        runner = FessSuggestTestCluster.start("PopularWordsSnapshotTest", (number, settingsBuilder) -> {
+            settingsBuilder.put("fsuggest.pwords.snapshot.interval", "1h");
+            settingsBuilder.put("fsuggest.pwords.snapshots.home.index", "pw");
+            settingsBuilder.put("fsuggest.pwords.snapshots.home.size", 20);
+            settingsBuilder.put("fsuggest.pwords.snapshots.home.query_freq", 0);
+        });
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        FessSuggestTestCluster.stop(runner);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_snapshot() throws Exception {
+        final FessSuggestService fessSuggestService = runner.getInstance(FessSuggestService.class);
+        Curl.post(runner.masterNode(), "pw/_fsuggest/create").execute();
+        addSearchWords(0, 5);
+
+        fessSuggestService.refreshPopularWordsSnapshots();
+        addSearchWords(5, 10);
+
+        // declared combination, served from the snapshot taken before the last words
+        assertEquals(5, Curl.get(runner.masterNode(), "pw/_fsuggest/pwords").param("query_freq", "0").execute().getContentAsMap()
+            .get("total"));
+        final Map<String, Object> smaller = Curl.get(runner.masterNode(), "pw/_fsuggest/pwords").param("query_freq", "0")
+            .param("size", "3").execute().getContentAsMap();
+        assertEquals(5, smaller.get("total"));
+        assertEquals(3, smaller.get("num"));
+
+        // undeclared combinations run the live query
+        assertEquals(10, Curl.get(runner.masterNode(), "pw/_fsuggest/pwords").param("query_freq", "0").param("seed", "1").execute()
+            .getContentAsMap().get("total"));
+        assertEquals(10, Curl.get(runner.masterNode(), "pw/_fsuggest/pwords").param("query_freq", "0").param("size", "30").execute()
+            .getContentAsMap().get("total"));
+
+        fessSuggestService.refreshPopularWordsSnapshots();
+        assertEquals(10, Curl.get(runner.masterNode(), "pw/_fsuggest/pwords").param("query_freq", "0").execute().getContentAsMap()
+            .get("total"));
+
+        final Map<String, Object> stats = Curl.get(runner.masterNode(), "_fsuggest/_stats").param("local", "true").execute()
+            .getContentAsMap();
+        final Map<String, Object> snapshot = ((List<Map<String, Object>>) stats.get("pwords_snapshots")).get(0);
+        assertEquals("home", snapshot.get("name"));
+        assertEquals(Boolean.TRUE, snapshot.get("available"));
+    }
+
+    private static void addSearchWords(final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            Curl.post(runner.masterNode(), "pw/_fsuggest/update/searchword")
+                .body("{\"keyword\":\"検索" + i + "\",\"fields\":[\"aaa\"]}").execute();
+        }
+        runner.refresh();
+    }
+}
@@ -0,0 +1,150 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.Histogram;
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.indices.cluster.IndicesClusterStateService;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Measures p99 latency of suggester lookups that miss the registry while
+ * another index is recreated over and over, and logs them for per-key locks
+ * and for the same service with every suggester built under the service
+ * monitor, as the registry used to do. That lookups are not blocked by the
+ * build of another suggester is asserted by FessSuggesterLockTest.
+ * Run with: mvn test -Dtest=FessSuggestServiceConcurrencyBenchmark
+ */
+public class FessSuggestServiceConcurrencyBenchmark {
+    private static final ESLogger logger = Loggers.getLogger(FessSuggestServiceConcurrencyBenchmark.class);
+
+    private static final String CHURN_INDEX = "churn";
+
+    private static final int READERS = 4;
+
+    private static final int INDICES = 8;
+
+    private static final int LOOKUPS = 200;
+
+    private static ElasticsearchClusterRunner runner;
+
+    private static FessSuggestService fessSuggestService;
+
+    private static FessSuggestService monitorService;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        runner = FessSuggestTestCluster.start("FessSuggestServiceConcurrencyBenchmark");
+
+        fessSuggestService = runner.getInstance(FessSuggestService.class);
+        monitorService = new MonitorFessSuggestService(runner.getInstance(Settings.class), runner.getInstance(Client.class),
+            runner.getInstance(ThreadPool.class), runner.getInstance(ClusterService.class),
+            runner.getInstance(NodeSettingsService.class), runner.getInstance(NodeEnvironment.class),
+            runner.getInstance(IndicesClusterStateService.class));
+        fessSuggestService.suggester(CHURN_INDEX).createIndexIfNothing();
+        for (int i = 0; i < INDICES; i++) {
+            fessSuggestService.suggester("bench" + i).createIndexIfNothing();
+        }
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        if (monitorService != null) {
+            monitorService.close();
+        }
+        FessSuggestTestCluster.stop(runner);
+    }
+
+    @Test
+    public void bench_lookup() throws Exception {
+        run(monitorService);
+        run(fessSuggestService);
+        final Histogram baseline = run(monitorService);
+        final Histogram perKey = run(fessSuggestService);
+
+        logger.info("service monitor: p50 {}ms, p99 {}ms, max {}ms", millis(baseline.getValueAtPercentile(50)),
+            millis(baseline.getValueAtPercentile(99)), millis(baseline.getMaxValue()));
+        logger.info("per-key lock:    p50 {}ms, p99 {}ms, max {}ms", millis(perKey.getValueAtPercentile(50)),
+            millis(perKey.getValueAtPercentile(99)), millis(perKey.getMaxValue()));
+    }
+
+    private static String millis(final long micros) {
+        return String.format("%.2f", micros / 1000d);
+    }
+
+    private Histogram run(final FessSuggestService service) throws Exception {
+        final Histogram histogram = new Histogram(TimeUnit.SECONDS.toMicros(60), 3);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Thread churn = new Thread(() -> {
+            while (running.get()) {
+                recreate(service);
+            }
+        });
+        churn.start();
+
+        final CountDownLatch latch = new CountDownLatch(READERS);
+        final List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            final int offset = r;
+            final Thread reader = new Thread(() -> {
+                try {
+                    for (int i = 0; i < LOOKUPS; i++) {
+                        final String id = "bench" + ((i + offset) % INDICES);
+                        service.deleteSuggester(id);
+                        final long start = System.nanoTime();
+                        service.suggester(id);
+                        final long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                        synchronized (histogram) {
+                            histogram.recordValue(Math.min(micros, histogram.getHighestTrackableValue()));
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        latch.await();
+        running.set(false);
+        churn.join();
+        return histogram;
+    }
+
+    private static void recreate(final FessSuggestService service) {
+        service.deleteSuggester(CHURN_INDEX);
+        service.suggester(CHURN_INDEX).createIndexIfNothing();
+    }
+
+    /**
+     * Builds and removes every suggester under the service monitor.
+     */
+    private static class MonitorFessSuggestService extends FessSuggestService {
+        MonitorFessSuggestService(final Settings settings, final Client client, final ThreadPool threadPool,
+                final ClusterService clusterService, final NodeSettingsService nodeSettingsService, final NodeEnvironment nodeEnv,
+                final IndicesClusterStateService indicesClusterStateService) {
+            super(settings, client, threadPool, clusterService, nodeSettingsService, nodeEnv, indicesClusterStateService);
+        }
+
+        @Override
+        protected synchronized <T> T withSuggesterLock(final String id, final Supplier<T> action) {
+            return action.get();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.codelibs.elasticsearch.service;
+
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+import org.codelibs.fess.suggest.Suggester;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares update throughput of a Suggester built per request with the
+ * indexer cached by FessSuggestService and logs both. The reuse of the indexer itself
+ * is asserted by FessSuggestRestActionTest.
+ * Run with: mvn test -Dtest=FessSuggestUpdateBenchmark
+ */
+public class FessSuggestUpdateBenchmark {
+    private static final ESLogger logger = Loggers.getLogger(FessSuggestUpdateBenchmark.class);
+
+    private static final String INDEX = "bench";
+
+    private static final int WARMUP = 50;
+
+    private static final int ITERATIONS = 500;
+
+    private static ElasticsearchClusterRunner runner;
+
+    private static FessSuggestService fessSuggestService;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        runner = FessSuggestTestCluster.start("FessSuggestUpdateBenchmark");
+
+        fessSuggestService = runner.getInstance(FessSuggestService.class);
+        fessSuggestService.suggester(INDEX).createIndexIfNothing();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        FessSuggestTestCluster.stop(runner);
+    }
+
+    @Test
+    public void bench_update() throws Exception {
+        final String[] fields = new String[] { "content" };
+        final String[] empty = new String[0];
+
+        for (int i = 0; i < WARMUP; i++) {
+            final Suggester suggester = Suggester.builder().build(runner.client(), INDEX);
+            suggester.indexer().indexFromSearchWord("warmup" + i, fields, empty, empty, 1, empty);
+            suggester.shutdown();
+            fessSuggestService.indexFromSearchWord(INDEX, "warmup" + i, fields, empty, empty, 1, empty);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final Suggester suggester = Suggester.builder().build(runner.client(), INDEX);
+            suggester.indexer().indexFromSearchWord("before" + i, fields, empty, empty, 1, empty);
+            suggester.shutdown();
+        }
+        final double before = ITERATIONS / ((System.nanoTime() - start) / 1_000_000_000d);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            fessSuggestService.indexFromSearchWord(INDEX, "after" + i, fields, empty, empty, 1, empty);
+        }
+        final double after = ITERATIONS / ((System.nanoTime() - start) / 1_000_000_000d);
+
+        logger.info("new Suggester per update: {} updates/sec", String.format("%.1f", before));
+        logger.info("cached indexer:           {} updates/sec", String.format("%.1f", after));
+    }
+}
@@ -0,0 +1,77 @@
+package org.codelibs.elasticsearch.service;
+
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FessSuggesterLifecycleTest {
+    private static final long IDLE_TIMEOUT = 2000;
+
+    private static ElasticsearchClusterRunner runner;
+
+    private static FessSuggestService fessSuggestService;
+
+    private static boolean warmedUp;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        runner = FessSuggestTestCluster.start("FessSuggesterLifecycleTest", (number, settingsBuilder) -> {
+            settingsBuilder.put("fsuggest.suggester.idle_timeout", IDLE_TIMEOUT + "ms");
+            // evictions are run by the tests
+            settingsBuilder.put("fsuggest.suggester.eviction_interval", "1h");
+            settingsBuilder.putArray("fsuggest.suggester.warmup", "warm");
+        });
+        fessSuggestService = runner.getInstance(FessSuggestService.class);
+
+        // before any test evicts it
+        for (int i = 0; i < 100 && !fessSuggestService.indexers.containsKey("warm"); i++) {
+            Thread.sleep(100);
+        }
+        warmedUp = fessSuggestService.suggesters.containsKey("warm") && fessSuggestService.indexers.containsKey("warm");
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        FessSuggestTestCluster.stop(runner);
+    }
+
+    @Test
+    public void test_warmUp() throws Exception {
+        assertTrue(warmedUp);
+    }
+
+    @Test
+    public void test_evictIdleSuggesters() throws Exception {
+        final FessSuggester suggester = fessSuggestService.suggester("idle");
+        fessSuggestService.indexer("idle");
+
+        fessSuggestService.evictIdleSuggesters();
+        assertSame(suggester, fessSuggestService.suggester("idle"));
+
+        Thread.sleep(IDLE_TIMEOUT + 500);
+        fessSuggestService.evictIdleSuggesters();
+        assertFalse(fessSuggestService.suggesters.containsKey("idle"));
+        assertFalse(fessSuggestService.indexers.containsKey("idle"));
+        assertFalse(fessSuggestService.accessTimes.containsKey("idle"));
+        assertFalse(fessSuggestService.suggesterLocks.containsKey("idle"));
+
+        assertNotSame(suggester, fessSuggestService.suggester("idle"));
+    }
+
+    @Test
+    public void test_deleteSuggester() throws Exception {
+        final FessSuggester suggester = fessSuggestService.suggester("deleted");
+        fessSuggestService.indexer("deleted");
+
+        fessSuggestService.deleteSuggester("deleted");
+        assertFalse(fessSuggestService.suggesters.containsKey("deleted"));
+        assertFalse(fessSuggestService.indexers.containsKey("deleted"));
+        assertFalse(fessSuggestService.suggesterLocks.containsKey("deleted"));
+
+        assertNotSame(suggester, fessSuggestService.suggester("deleted"));
+    }
+}
@@ -0,0 +1,97 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.codelibs.elasticsearch.FessSuggestTestCluster;
+import org.codelibs.elasticsearch.runner.ElasticsearchClusterRunner;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.indices.cluster.IndicesClusterStateService;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FessSuggesterLockTest {
+    private static final String SLOW_INDEX = "slow";
+
+    private static ElasticsearchClusterRunner runner;
+
+    private static BlockingFessSuggestService fessSuggestService;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        runner = FessSuggestTestCluster.start("FessSuggesterLockTest");
+        fessSuggestService = new BlockingFessSuggestService(runner.getInstance(Settings.class), runner.getInstance(Client.class),
+            runner.getInstance(ThreadPool.class), runner.getInstance(ClusterService.class),
+            runner.getInstance(NodeSettingsService.class), runner.getInstance(NodeEnvironment.class),
+            runner.getInstance(IndicesClusterStateService.class));
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        if (fessSuggestService != null) {
+            fessSuggestService.close();
+        }
+        FessSuggestTestCluster.stop(runner);
+    }
+
+    @Test
+    public void test_lookupWhileBuilding() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<FessSuggester> slow = executor.submit(() -> fessSuggestService.suggester(SLOW_INDEX));
+            assertTrue(fessSuggestService.building.await(10, TimeUnit.SECONDS));
+
+            // built and cached while the build of the slow suggester holds its lock
+            final Future<FessSuggester> other = executor.submit(() -> fessSuggestService.suggester("other"));
+            assertSame(other.get(10, TimeUnit.SECONDS), fessSuggestService.suggester("other"));
+            final Future<FessSuggestIndexer> indexer = executor.submit(() -> fessSuggestService.indexer("other"));
+            assertNotNull(indexer.get(10, TimeUnit.SECONDS));
+            assertFalse(slow.isDone());
+
+            fessSuggestService.release.countDown();
+            assertSame(slow.get(10, TimeUnit.SECONDS), fessSuggestService.suggester(SLOW_INDEX));
+        } finally {
+            fessSuggestService.release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Blocks the build of the slow suggester until it is released.
+     */
+    private static class BlockingFessSuggestService extends FessSuggestService {
+        final CountDownLatch building = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        BlockingFessSuggestService(final Settings settings, final Client client, final ThreadPool threadPool,
+                final ClusterService clusterService, final NodeSettingsService nodeSettingsService, final NodeEnvironment nodeEnv,
+                final IndicesClusterStateService indicesClusterStateService) {
+            super(settings, client, threadPool, clusterService, nodeSettingsService, nodeEnv, indicesClusterStateService);
+        }
+
+        @Override
+        protected FessSuggester createSuggester(final String id) {
+            if (SLOW_INDEX.equals(id)) {
+                building.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.createSuggester(id);
+        }
+    }
+}
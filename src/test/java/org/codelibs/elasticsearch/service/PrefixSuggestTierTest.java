@@ -0,0 +1,116 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.codelibs.fess.suggest.entity.SuggestItem;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PrefixSuggestTierTest {
+    private static final String[] NONE = new String[0];
+
+    @Test
+    public void test_lookup() throws Exception {
+        final PrefixSuggestTier tier = tier(true, item("検索エンジン", "けんさくえんじん", "tag1", "aaa"), item("検査", "けんさ", "tag2", "bbb"),
+            item("全文検索", "ぜんぶんけんさく", "tag1", "aaa"));
+
+        assertEquals(texts("検索エンジン", "検査"), texts(tier.lookup("検", readings("けん"), NONE, NONE, NONE, 10, 2.0f)));
+        assertEquals(texts("全文検索"), texts(tier.lookup("全", readings("ぜん"), NONE, NONE, NONE, 10, 2.0f)));
+        assertEquals(texts("検索エンジン"), texts(tier.lookup("検", readings("けん"), NONE, NONE, NONE, 1, 2.0f)));
+        assertEquals(texts("検査"), texts(tier.lookup("検", readings("けん"), new String[] { "tag2" }, NONE, NONE, 10, 2.0f)));
+        assertEquals(texts("検索エンジン"), texts(tier.lookup("検", readings("けん"), NONE, NONE, new String[] { "aaa" }, 10, 2.0f)));
+        assertEquals(texts(), texts(tier.lookup("日本", readings("にほん"), NONE, NONE, NONE, 10, 2.0f)));
+    }
+
+    @Test
+    public void test_lookup_roles() throws Exception {
+        final SuggestItem restricted = new SuggestItem(new String[] { "検索エンジン" }, new String[][] { { "けんさくえんじん" } },
+            NONE, 0, 1, NONE, new String[] { "role1" }, NONE, SuggestItem.Kind.QUERY);
+        final PrefixSuggestTier tier = new PrefixSuggestTier("test", Collections.singletonList(restricted), new float[] { 1.0f },
+            true, 0);
+
+        assertEquals(texts(), texts(tier.lookup("検", readings(), NONE, NONE, NONE, 10, 2.0f)));
+        assertEquals(texts(), texts(tier.lookup("検", readings(), NONE, new String[] { "role2" }, NONE, 10, 2.0f)));
+        assertEquals(texts("検索エンジン"), texts(tier.lookup("検", readings(), NONE, new String[] { "role1" }, NONE, 10, 2.0f)));
+    }
+
+    @Test
+    public void test_lookup_incomplete() throws Exception {
+        // scores of 4, 2 and 1; items outside of the tier score 1 at most
+        final PrefixSuggestTier tier = new PrefixSuggestTier("test", list(item("検索エンジン", "けんさくえんじん", "tag1", "aaa"),
+            item("検査", "けんさ", "tag1", "aaa"), item("全文検索", "ぜんぶんけんさく", "tag1", "aaa")), new float[] { 4.0f, 2.0f, 1.0f },
+            false, 0);
+
+        // fewer candidates than requested
+        assertNull(tier.lookup("検", readings("けん"), NONE, NONE, NONE, 3, 2.0f));
+        // candidates outscore any item outside of the tier with the prefix match weight
+        assertEquals(texts("検索エンジン", "検査"), texts(tier.lookup("検", readings("けん"), NONE, NONE, NONE, 2, 2.0f)));
+        // a reading match without the prefix match weight ties with items outside of the tier
+        assertNull(tier.lookup("ゼ", readings("ぜ"), NONE, NONE, NONE, 1, 2.0f));
+        // nothing requested
+        assertEquals(texts(), texts(tier.lookup("検", readings("けん"), NONE, NONE, NONE, 0, 2.0f)));
+    }
+
+    @Test
+    public void test_stats() throws Exception {
+        final PrefixSuggestTier empty = new PrefixSuggestTier("test", Collections.emptyList(), new float[0], true, 5);
+        final PrefixSuggestTier tier = tier(false, item("検索エンジン", "けんさくえんじん", "tag1", "aaa"), item("検査", "けんさ", "tag2", "bbb"));
+
+        assertEquals("test", tier.getIndex());
+        assertEquals(0, empty.getItemCount());
+        assertEquals(0, empty.getKeyCount());
+        assertEquals(5, empty.getBuildTime());
+        assertTrue(empty.isComplete());
+        assertEquals(2, tier.getItemCount());
+        // texts and readings
+        assertEquals(4, tier.getKeyCount());
+        assertFalse(tier.isComplete());
+        assertTrue(empty.getMemorySize() > 0);
+        assertTrue(tier.getMemorySize() > empty.getMemorySize());
+        assertTrue(tier.getTimestamp() <= System.currentTimeMillis());
+    }
+
+    private static PrefixSuggestTier tier(final boolean complete, final SuggestItem... items) {
+        final float[] scores = new float[items.length];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = items.length - i;
+        }
+        return new PrefixSuggestTier("test", list(items), scores, complete, 0);
+    }
+
+    private static SuggestItem item(final String text, final String reading, final String tag, final String field) {
+        return new SuggestItem(new String[] { text }, new String[][] { { reading } }, new String[] { field }, 0, 1,
+            new String[] { tag }, new String[] { "_guest_" }, NONE, SuggestItem.Kind.QUERY);
+    }
+
+    private static List<SuggestItem> list(final SuggestItem... items) {
+        final List<SuggestItem> list = new ArrayList<>();
+        Collections.addAll(list, items);
+        return list;
+    }
+
+    private static List<String> readings(final String... readings) {
+        return list(readings);
+    }
+
+    private static List<String> texts(final String... texts) {
+        return list(texts);
+    }
+
+    private static List<String> list(final String... values) {
+        final List<String> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    private static List<String> texts(final List<SuggestItem> items) {
+        final List<String> texts = new ArrayList<>();
+        for (final SuggestItem item : items) {
+            texts.add(item.getText());
+        }
+        return texts;
+    }
+}
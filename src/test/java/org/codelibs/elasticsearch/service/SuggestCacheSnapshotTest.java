@@ -0,0 +1,125 @@
+package org.codelibs.elasticsearch.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SuggestCacheSnapshotTest {
+    private Path dir;
+
+    @Before
+    public void before() throws Exception {
+        dir = Files.createTempDirectory("fsuggest");
+    }
+
+    @After
+    public void after() throws Exception {
+        for (final Path file : Files.newDirectoryStream(dir)) {
+            Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void test_roundTrip() throws Exception {
+        final SuggestResponseCache.Key key = SuggestResponseCache.key("fess", "検索", 10, "tag2,tag1", null, "aaa", 2.0f, "json");
+        final SuggestResponseCache.CachedResponse response = new SuggestResponseCache.CachedResponse("application/json",
+            "{\"total\":1}".getBytes(StandardCharsets.UTF_8), 1000L);
+        final Path file = dir.resolve("test.snapshot");
+        new SuggestCacheSnapshot("cluster", 2000L, Collections.singletonMap("fess", 2.0f),
+            Collections.singletonMap("fess", TimeValue.timeValueMillis(80)),
+            Collections.singletonList(new SuggestCacheSnapshot.Entry(key, response, 3, "uuid1,uuid2"))).write(file);
+
+        final SuggestCacheSnapshot snapshot = SuggestCacheSnapshot.read(file);
+        assertEquals("cluster", snapshot.getClusterName());
+        assertEquals(2000L, snapshot.getTimestamp());
+        assertEquals(2.0f, snapshot.getPrefixMatchWeights().get("fess"), 0f);
+        assertEquals(80, snapshot.getSuggestTimeouts().get("fess").millis());
+        assertEquals(1, snapshot.getEntries().size());
+        final SuggestCacheSnapshot.Entry entry = snapshot.getEntries().get(0);
+        assertEquals(key, entry.getKey());
+        assertEquals("application/json", entry.getResponse().getContentType());
+        assertArrayEquals(response.getContent(), entry.getResponse().getContent());
+        assertEquals(1000L, entry.getResponse().getTimestamp());
+        assertEquals(3, entry.getResponse().getHitCount());
+        assertEquals(3, entry.getHitCount());
+        assertEquals("uuid1,uuid2", entry.getIndexUuid());
+        assertFalse(Files.exists(dir.resolve("test.snapshot.tmp")));
+    }
+
+    @Test
+    public void test_corrupt() throws Exception {
+        final Path file = write("corrupt.snapshot");
+        final byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0xFF;
+        Files.write(file, bytes);
+        assertUnreadable(file, "Checksum mismatch.");
+
+        Files.write(file, Arrays.copyOf(Files.readAllBytes(write("truncated.snapshot")), 16));
+        assertUnreadable(file, "Invalid snapshot length: 16");
+
+        Files.write(file, "not a snapshot at all".getBytes(StandardCharsets.UTF_8));
+        assertUnreadable(file, "Not a cache snapshot.");
+    }
+
+    @Test
+    public void test_incompatible() throws Exception {
+        final Path file = write("format.snapshot");
+        final byte[] bytes = Files.readAllBytes(file);
+        bytes[7] = 1;
+        Files.write(file, bytes);
+        assertUnreadable(file, "Incompatible snapshot format: 1");
+
+        final byte[] version = Files.readAllBytes(write("version.snapshot"));
+        version[11] ^= 0x01;
+        Files.write(file, version);
+        try {
+            SuggestCacheSnapshot.read(file);
+            fail();
+        } catch (final IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Incompatible Elasticsearch version"));
+        }
+    }
+
+    @Test
+    public void test_remainingTtl() throws Exception {
+        final SuggestResponseCache cache = new SuggestResponseCache(10, 60000);
+        final long now = System.currentTimeMillis();
+        final SuggestResponseCache.Key fresh = SuggestResponseCache.key("fess", "a", 10, null, null, null, 0f, "");
+        final SuggestResponseCache.Key expired = SuggestResponseCache.key("fess", "b", 10, null, null, null, 0f, "");
+        cache.put(fresh, new SuggestResponseCache.CachedResponse("application/json", new byte[0], now - 1000));
+        cache.put(expired, new SuggestResponseCache.CachedResponse("application/json", new byte[0], now - 60000));
+
+        assertNotNull(cache.get(fresh));
+        assertNull(cache.get(expired));
+        assertEquals(1, cache.hottest(10).size());
+    }
+
+    private Path write(final String name) throws IOException {
+        final Path file = dir.resolve(name);
+        new SuggestCacheSnapshot("cluster", 2000L, Collections.emptyMap(), Collections.emptyMap(),
+            Collections.singletonList(new SuggestCacheSnapshot.Entry(SuggestResponseCache.key("fess", "検索", 10, null, null, null,
+                0f, ""), new SuggestResponseCache.CachedResponse("application/json", new byte[] { 1, 2, 3 }), 0, "uuid")))
+                    .write(file);
+        return file;
+    }
+
+    private static void assertUnreadable(final Path file, final String message) {
+        try {
+            SuggestCacheSnapshot.read(file);
+            fail();
+        } catch (final IOException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
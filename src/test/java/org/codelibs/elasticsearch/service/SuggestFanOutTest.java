@@ -0,0 +1,146 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.codelibs.fess.suggest.entity.SuggestItem;
+import org.codelibs.fess.suggest.request.suggest.SuggestResponse;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SuggestFanOutTest {
+    private final AtomicReference<SuggestResponse> result = new AtomicReference<>();
+
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    @Test
+    public void test_merge() throws Exception {
+        final Map<String, Float> boosts = new HashMap<>();
+        boosts.put("a", 1f);
+        boosts.put("b", 2f);
+        final SuggestFanOut fanOut = fanOut(boosts, new HashMap<>(), 2);
+
+        fanOut.onResponse("a", response("a", "検索", "検査"), request(3f, "検索", 3f, "検査", 2f));
+        assertNull(result.get());
+        fanOut.onResponse("b", response("b", "全文検索", "検索"), request(1.2f, "全文検索", 1.2f, "検索", 1f));
+
+        final SuggestFanOut.MergedResponse merged = (SuggestFanOut.MergedResponse) result.get();
+        assertEquals(texts("検索", "全文検索"), texts(merged.getItems()));
+        assertEquals(4, merged.getTotal());
+        assertFalse(merged.isPartial());
+    }
+
+    @Test
+    public void test_returnEarly() throws Exception {
+        final Map<String, Float> boosts = new HashMap<>();
+        boosts.put("a", 1f);
+        boosts.put("b", 1f);
+        final Map<String, Float> maxScores = new HashMap<>();
+        maxScores.put("b", 1f);
+        final SuggestFanOut fanOut = fanOut(boosts, maxScores, 1);
+
+        // "b" has never scored above the lowest merged hit
+        fanOut.onResponse("a", response("a", "検索"), request(3f, "検索", 3f));
+        assertEquals(texts("検索"), texts(result.get().getItems()));
+        assertFalse(((SuggestFanOut.MergedResponse) result.get()).isPartial());
+    }
+
+    @Test
+    public void test_partial() throws Exception {
+        final Map<String, Float> boosts = new HashMap<>();
+        boosts.put("a", 1f);
+        boosts.put("b", 1f);
+        final SuggestFanOut fanOut = fanOut(boosts, new HashMap<>(), 10);
+
+        fanOut.onFailure("b", new IllegalStateException("b failed"));
+        assertNull(result.get());
+        fanOut.onResponse("a", response("a", "検索"), request(3f, "検索", 3f));
+
+        final SuggestFanOut.MergedResponse merged = (SuggestFanOut.MergedResponse) result.get();
+        assertEquals(texts("検索"), texts(merged.getItems()));
+        assertTrue(merged.isPartial());
+        assertEquals(Collections.singletonList("b"), merged.getFailedIndices());
+        assertNull(error.get());
+    }
+
+    @Test
+    public void test_timeout() throws Exception {
+        final Map<String, Float> boosts = new HashMap<>();
+        boosts.put("a", 1f);
+        boosts.put("b", 1f);
+        final SuggestFanOut fanOut = fanOut(boosts, new HashMap<>(), 10);
+
+        assertFalse(fanOut.timeout());
+        fanOut.onResponse("a", response("a", "検索"), request(3f, "検索", 3f));
+        assertNull(result.get());
+        assertTrue(fanOut.timeout());
+
+        final SuggestFanOut.MergedResponse merged = (SuggestFanOut.MergedResponse) result.get();
+        assertEquals(texts("検索"), texts(merged.getItems()));
+        assertTrue(merged.isPartial());
+        assertTrue(merged.isTimedOut());
+        assertEquals(Collections.singletonList("b"), merged.getFailedIndices());
+
+        // completed by the timeout
+        fanOut.onResponse("b", response("b", "検査"), request(3f, "検査", 3f));
+        assertSame(merged, result.get());
+        assertFalse(fanOut.timeout());
+    }
+
+    @Test
+    public void test_failure() throws Exception {
+        final Map<String, Float> boosts = new HashMap<>();
+        boosts.put("a", 1f);
+        boosts.put("b", 1f);
+        final SuggestFanOut fanOut = fanOut(boosts, new HashMap<>(), 10);
+
+        fanOut.onFailure("a", new IllegalStateException("a failed"));
+        fanOut.onFailure("b", new IllegalStateException("b failed"));
+        assertNull(result.get());
+        assertEquals("a failed", error.get().getMessage());
+    }
+
+    private SuggestFanOut fanOut(final Map<String, Float> boosts, final Map<String, Float> maxScores, final int size) {
+        return new SuggestFanOut("alias", "検", size, boosts, maxScores, result::set, error::set);
+    }
+
+    private static SuggestResponse response(final String index, final String... texts) {
+        final List<SuggestItem> items = new ArrayList<>();
+        for (final String text : texts) {
+            items.add(new SuggestItem(new String[] { text }, new String[][] { {} }, new String[0], 0, 1, new String[0],
+                new String[] { "_guest_" }, new String[0], SuggestItem.Kind.QUERY));
+        }
+        return new SuggestResponse(index, 1, Collections.singletonList("検"), texts.length, items);
+    }
+
+    /**
+     * @param scores pairs of a text and its score
+     */
+    private static ScoredSuggestRequest request(final float maxScore, final Object... scores) {
+        final ScoredSuggestRequest request = new ScoredSuggestRequest();
+        for (int i = 0; i < scores.length; i += 2) {
+            request.scores.put((String) scores[i], (Float) scores[i + 1]);
+        }
+        request.maxScore = maxScore;
+        return request;
+    }
+
+    private static List<String> texts(final String... texts) {
+        final List<String> list = new ArrayList<>();
+        Collections.addAll(list, texts);
+        return list;
+    }
+
+    private static List<String> texts(final List<SuggestItem> items) {
+        final List<String> texts = new ArrayList<>();
+        for (final SuggestItem item : items) {
+            texts.add(item.getText());
+        }
+        return texts;
+    }
+}
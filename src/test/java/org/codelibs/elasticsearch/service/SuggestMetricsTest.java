@@ -0,0 +1,42 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SuggestMetricsTest {
+
+    @Test
+    public void test_maxIndices() throws Exception {
+        final SuggestMetrics metrics = new SuggestMetrics(2);
+        metrics.record(SuggestMetrics.ENDPOINT_SUGGEST, "a", 0, 0, 0);
+        metrics.record(SuggestMetrics.ENDPOINT_SUGGEST, "b", 0, 0, 0);
+        metrics.recordError(SuggestMetrics.ENDPOINT_SUGGEST, "c");
+        metrics.recordTimeout(SuggestMetrics.ENDPOINT_SUGGEST, "d");
+        metrics.record(SuggestMetrics.ENDPOINT_SUGGEST, "a", 0, 0, 0);
+
+        final Map<String, SuggestMetrics.Snapshot> suggest = metrics.snapshot().get(SuggestMetrics.ENDPOINT_SUGGEST);
+        assertEquals(3, suggest.size());
+        assertEquals(2, suggest.get("a").getCount());
+        assertEquals(1, suggest.get("b").getCount());
+        assertEquals(1, suggest.get(SuggestMetrics.OTHER_INDICES).getErrors());
+        assertEquals(1, suggest.get(SuggestMetrics.OTHER_INDICES).getTimeouts());
+    }
+
+    @Test
+    public void test_retainIndices() throws Exception {
+        final SuggestMetrics metrics = new SuggestMetrics(10);
+        metrics.record(SuggestMetrics.ENDPOINT_SUGGEST, "a", 0, 0, 0);
+        metrics.record(SuggestMetrics.ENDPOINT_SUGGEST, "deleted", 0, 0, 0);
+        metrics.recordError(SuggestMetrics.ENDPOINT_UPDATE, null);
+
+        metrics.retainIndices("a"::equals);
+
+        final Map<String, Map<String, SuggestMetrics.Snapshot>> snapshot = metrics.snapshot();
+        assertTrue(snapshot.get(SuggestMetrics.ENDPOINT_SUGGEST).containsKey("a"));
+        assertFalse(snapshot.get(SuggestMetrics.ENDPOINT_SUGGEST).containsKey("deleted"));
+        assertTrue(snapshot.get(SuggestMetrics.ENDPOINT_UPDATE).containsKey(SuggestMetrics.UNKNOWN_INDEX));
+    }
+}
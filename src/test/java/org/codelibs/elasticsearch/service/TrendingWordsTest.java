@@ -0,0 +1,74 @@
+package org.codelibs.elasticsearch.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TrendingWordsTest {
+    private static final long BUCKET = 1000;
+
+    @Test
+    public void test_trending() throws Exception {
+        final TrendingWords trendingWords = new TrendingWords(BUCKET, 10, 4, 1024, 10);
+        trendingWords.add("steady", 5, 0);
+        trendingWords.add("steady", 5, 5 * BUCKET);
+        trendingWords.add("rising", 1, 5 * BUCKET);
+        trendingWords.add("rising", 10, 9 * BUCKET);
+        trendingWords.add("steady", 5, 9 * BUCKET);
+
+        final List<TrendingWords.Trend> trends = trendingWords.trending(BUCKET, 10, 9 * BUCKET);
+        assertEquals(words("rising", "steady"), words(trends));
+        assertEquals(10, trends.get(0).getCount());
+    }
+
+    @Test
+    public void test_evictCandidate() throws Exception {
+        final TrendingWords trendingWords = new TrendingWords(BUCKET, 10, 4, 1024, 3);
+        trendingWords.add("a", 3, 0);
+        trendingWords.add("b", 1, 0);
+        trendingWords.add("c", 2, 0);
+
+        // does not outscore the least frequent candidate
+        trendingWords.add("d", 1, 0);
+        assertEquals(words("a", "c", "b"), words(trendingWords.trending(BUCKET, 10, 0)));
+
+        trendingWords.add("e", 5, 0);
+        assertEquals(words("e", "a", "c"), words(trendingWords.trending(BUCKET, 10, 0)));
+
+        // updates reorder the candidates
+        trendingWords.add("c", 10, 0);
+        trendingWords.add("f", 4, 0);
+        assertEquals(words("c", "e", "f"), words(trendingWords.trending(BUCKET, 10, 0)));
+        assertEquals(3, trendingWords.getCandidateCount());
+    }
+
+    @Test
+    public void test_evictStaleCandidate() throws Exception {
+        final TrendingWords trendingWords = new TrendingWords(BUCKET, 2, 4, 1024, 2);
+        trendingWords.add("old", 100, 0);
+        trendingWords.add("a", 1, 2 * BUCKET);
+        // "old" is no longer in the sketches and goes first despite its estimate
+        trendingWords.add("b", 1, 2 * BUCKET);
+        assertEquals(words("a", "b"), words(trendingWords.trending(BUCKET, 10, 2 * BUCKET)));
+        assertEquals(2, trendingWords.getCandidateCount());
+    }
+
+    private static List<String> words(final String... words) {
+        final List<String> list = new ArrayList<>();
+        for (final String word : words) {
+            list.add(word);
+        }
+        return list;
+    }
+
+    private static List<String> words(final List<TrendingWords.Trend> trends) {
+        final List<String> list = new ArrayList<>();
+        for (final TrendingWords.Trend trend : trends) {
+            list.add(trend.getWord());
+        }
+        return list;
+    }
+}